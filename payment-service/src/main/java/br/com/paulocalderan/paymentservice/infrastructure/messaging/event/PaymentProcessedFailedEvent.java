@@ -7,6 +7,7 @@ import java.util.UUID;
 
 @JsonTypeName("PAYMENT_PROCESSED_FAILED")
 public record PaymentProcessedFailedEvent(
+    UUID eventId,
     UUID subscriptionId,
     UUID userId,
     String reason,
@@ -14,7 +15,7 @@ public record PaymentProcessedFailedEvent(
     LocalDateTime timestamp
 ) {
     public PaymentProcessedFailedEvent(UUID subscriptionId, UUID userId, String reason) {
-        this(subscriptionId, userId, reason, "PAYMENT_PROCESSED_FAILED", LocalDateTime.now());
+        this(UUID.randomUUID(), subscriptionId, userId, reason, "PAYMENT_PROCESSED_FAILED", LocalDateTime.now());
     }
 }
 
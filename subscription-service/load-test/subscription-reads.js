@@ -0,0 +1,56 @@
+// Read load against subscription-service: 10k concurrent users looking up subscriptions by user and by id.
+// Run once per thread mode and compare http_req_duration p(99) and http_reqs/s:
+//   k6 run -e BASE_URL=http://localhost:8082 load-test/subscription-reads.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8082';
+const VUS = parseInt(__ENV.VUS || '10000');
+const SAMPLE_PAGES = parseInt(__ENV.SAMPLE_PAGES || '20');
+
+export const options = {
+    scenarios: {
+        reads: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: VUS },
+                { duration: __ENV.DURATION || '2m', target: VUS },
+                { duration: '10s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+    setupTimeout: '2m',
+};
+
+// Collects ACTIVE subscriptions through the keyset search so both endpoints hit existing documents.
+export function setup() {
+    const subscriptions = [];
+    let cursor = '';
+    for (let page = 0; page < SAMPLE_PAGES; page++) {
+        const response = http.get(`${BASE_URL}/api/subscriptions/search?status=ACTIVE&size=500${cursor}`);
+        if (response.status !== 200) {
+            throw new Error(`Search failed with status ${response.status}`);
+        }
+        const data = response.json('data');
+        data.content.forEach((subscription) => subscriptions.push({ id: subscription.id, userId: subscription.userId }));
+        if (!data.hasNext) {
+            break;
+        }
+        cursor = `&cursor=${encodeURIComponent(data.nextCursor)}`;
+    }
+    if (subscriptions.length === 0) {
+        throw new Error('No ACTIVE subscriptions to read, seed some first');
+    }
+    return { subscriptions };
+}
+
+export default function (data) {
+    const subscription = data.subscriptions[Math.floor(Math.random() * data.subscriptions.length)];
+    const response = Math.random() < 0.8
+        ? http.get(`${BASE_URL}/api/subscriptions/user/${subscription.userId}`, { tags: { name: 'byUser' } })
+        : http.get(`${BASE_URL}/api/subscriptions/${subscription.id}`, { tags: { name: 'byId' } });
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}
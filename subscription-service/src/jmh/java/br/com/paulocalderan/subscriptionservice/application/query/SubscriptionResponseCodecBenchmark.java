@@ -0,0 +1,91 @@
+package br.com.paulocalderan.subscriptionservice.application.query;
+
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionResponse;
+import br.com.paulocalderan.subscriptionservice.application.mapper.SubscriptionMapper;
+import br.com.paulocalderan.subscriptionservice.application.mapper.SubscriptionMapperImpl;
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import com.mongodb.MongoClientSettings;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the projected codec read with the entity read it replaced: the full stored document decoded into a
+ * {@link Document}, mapped to {@link Subscription} and then through {@link SubscriptionMapper}. Both start from
+ * the raw bytes the driver hands over. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SubscriptionResponseCodecBenchmark {
+
+    private final SubscriptionResponseCodec responseCodec = new SubscriptionResponseCodec();
+    private final SubscriptionMapper mapper = new SubscriptionMapperImpl();
+
+    private MappingMongoConverter converter;
+    private Codec<Document> documentCodec;
+    private RawBsonDocument storedDocument;
+    private RawBsonDocument projectedDocument;
+
+    @Setup
+    public void setUp() {
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        documentCodec = CodecRegistries.withUuidRepresentation(
+                MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD).get(Document.class);
+
+        UUID id = UUID.randomUUID();
+        Subscription subscription = Subscription.builder()
+                .id(id)
+                .userId(UUID.randomUUID())
+                .plan(Plan.PREMIUM)
+                .startDate(LocalDate.now())
+                .createdAt(Instant.now())
+                .expirationDate(LocalDate.now().plusMonths(1))
+                .status(Status.ACTIVE)
+                .renewalAttempts(0)
+                .partitionKey(Subscription.partitionOf(id))
+                .billingSlot(Subscription.billingSlotOf(id))
+                .version(3L)
+                .build();
+        Document stored = new Document();
+        converter.write(subscription, stored);
+        storedDocument = new RawBsonDocument(stored, documentCodec);
+
+        Document projected = new Document("_id", stored.get("_id"));
+        for (String field : new String[] {"userId", "plan", "startDate", "expirationDate", "status", "renewalAttempts"}) {
+            projected.append(field, stored.get(field));
+        }
+        projectedDocument = new RawBsonDocument(projected, documentCodec);
+    }
+
+    @Benchmark
+    public SubscriptionResponse entityThenMapper() {
+        Document document = storedDocument.decode(documentCodec);
+        return mapper.toResponse(converter.read(Subscription.class, document));
+    }
+
+    @Benchmark
+    public SubscriptionResponse projectedCodec() {
+        return projectedDocument.decode(responseCodec);
+    }
+}
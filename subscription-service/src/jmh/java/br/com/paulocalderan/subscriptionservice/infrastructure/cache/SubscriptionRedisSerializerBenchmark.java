@@ -0,0 +1,70 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary cache codec with the JSON serializer it replaced.
+ * Run with {@code ./gradlew jmh}; entry sizes are asserted in {@code SubscriptionRedisSerializerTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SubscriptionRedisSerializerBenchmark {
+
+    private final SubscriptionRedisSerializer binarySerializer = new SubscriptionRedisSerializer();
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private Subscription subscription;
+    private byte[] binaryBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        subscription = Subscription.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .plan(Plan.PREMIUM)
+                .startDate(LocalDate.now())
+                .expirationDate(LocalDate.now().plusMonths(1))
+                .status(Status.ACTIVE)
+                .renewalAttempts(0)
+                .version(3L)
+                .build();
+        binaryBytes = binarySerializer.serialize(subscription);
+        jsonBytes = jsonSerializer.serialize(subscription);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binarySerializer.serialize(subscription);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(subscription);
+    }
+
+    @Benchmark
+    public Subscription decodeBinary() {
+        return binarySerializer.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return jsonSerializer.deserialize(jsonBytes);
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.paulocalderan.subscriptionservice.application.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+public record BulkActiveSubscriptionRequest(
+    @NotEmpty(message = "User IDs are required")
+    @Size(max = 5000, message = "At most 5000 user IDs per request")
+    List<@NotNull UUID> userIds
+) {}
@@ -0,0 +1,16 @@
+package br.com.paulocalderan.subscriptionservice.application.dto;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.PaymentEvent;
+
+import java.util.List;
+
+/**
+ * Outcome of applying a batch of payment events: the subscriptions that were renewed or suspended,
+ * and the events whose subscription changed concurrently and must be applied one by one.
+ */
+public record PaymentBatchResult(
+    List<Subscription> renewed,
+    List<Subscription> suspended,
+    List<PaymentEvent> retryIndividually
+) {}
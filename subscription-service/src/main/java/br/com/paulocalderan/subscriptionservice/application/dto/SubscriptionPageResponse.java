@@ -0,0 +1,10 @@
+package br.com.paulocalderan.subscriptionservice.application.dto;
+
+import java.util.List;
+
+public record SubscriptionPageResponse(
+    List<SubscriptionResponse> content,
+    int size,
+    boolean hasNext,
+    String nextCursor
+) {}
@@ -0,0 +1,13 @@
+package br.com.paulocalderan.subscriptionservice.application.dto;
+
+import java.time.LocalDate;
+
+public record SubscriptionSearchRequest(
+    String plan,
+    String status,
+    LocalDate expirationFrom,
+    LocalDate expirationTo,
+    String sortBy,
+    String cursor,
+    int size
+) {}
@@ -13,12 +13,22 @@ public interface SubscriptionMapper {
     @Mapping(target = "id", expression = "java(java.util.UUID.randomUUID())")
     @Mapping(target = "plan", expression = "java(parsePlan(request.plan()))")
     @Mapping(target = "startDate", expression = "java(java.time.LocalDate.now())")
+    @Mapping(target = "createdAt", expression = "java(java.time.Instant.now())")
     @Mapping(target = "expirationDate", expression = "java(java.time.LocalDate.now().plusMonths(1))")
     @Mapping(target = "status", constant = "PROCESSING")
     @Mapping(target = "renewalAttempts", constant = "0")
+    @Mapping(target = "renewalRequestedOn", ignore = true)
+    @Mapping(target = "partitionKey", ignore = true)
+    @Mapping(target = "billingSlot", ignore = true)
     @Mapping(target = "version", ignore = true)
     Subscription toEntity(SubscriptionRequest request);
 
+    @AfterMapping
+    default void assignHashKeys(@MappingTarget Subscription subscription) {
+        subscription.setPartitionKey(Subscription.partitionOf(subscription.getId()));
+        subscription.setBillingSlot(Subscription.billingSlotOf(subscription.getId()));
+    }
+
     @Mapping(target = "plan", expression = "java(subscription.getPlan().name())")
     @Mapping(target = "status", expression = "java(subscription.getStatus().name())")
     SubscriptionResponse toResponse(Subscription subscription);
@@ -0,0 +1,129 @@
+package br.com.paulocalderan.subscriptionservice.application.query;
+
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionResponse;
+import com.mongodb.client.model.Projections;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Decodes a stored subscription straight into a {@link SubscriptionResponse}, reading the BSON stream field
+ * by field instead of building a {@code Document}, mapping it to the entity and mapping that again. Mirrors
+ * how the entity is written: UUIDs as binary subtype 4, or 3 in the Java legacy byte order; enums as their
+ * names; {@code LocalDate} as the date-time of its start of day in the system zone. Encoding writes the same
+ * formats, with UUIDs as subtype 4.
+ */
+public class SubscriptionResponseCodec implements Codec<SubscriptionResponse> {
+
+    /**
+     * The fields {@link SubscriptionResponse} needs; {@code _id} is always returned.
+     */
+    public static final Bson PROJECTION = Projections.include(
+            "userId", "plan", "startDate", "expirationDate", "status", "renewalAttempts");
+
+    @Override
+    public SubscriptionResponse decode(BsonReader reader, DecoderContext decoderContext) {
+        UUID id = null;
+        UUID userId = null;
+        String plan = null;
+        LocalDate startDate = null;
+        LocalDate expirationDate = null;
+        String status = null;
+        Integer renewalAttempts = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id" -> id = readUuid(reader);
+                case "userId" -> userId = readUuid(reader);
+                case "plan" -> plan = reader.readString();
+                case "startDate" -> startDate = readDate(reader);
+                case "expirationDate" -> expirationDate = readDate(reader);
+                case "status" -> status = reader.readString();
+                case "renewalAttempts" -> renewalAttempts = reader.readInt32();
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return new SubscriptionResponse(id, userId, plan, startDate, expirationDate, status, renewalAttempts);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, SubscriptionResponse value, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeUuid(writer, "_id", value.id());
+        writeUuid(writer, "userId", value.userId());
+        writeString(writer, "plan", value.plan());
+        writeDate(writer, "startDate", value.startDate());
+        writeDate(writer, "expirationDate", value.expirationDate());
+        writeString(writer, "status", value.status());
+        writer.writeName("renewalAttempts");
+        if (value.renewalAttempts() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeInt32(value.renewalAttempts());
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<SubscriptionResponse> getEncoderClass() {
+        return SubscriptionResponse.class;
+    }
+
+    private static UUID readUuid(BsonReader reader) {
+        BsonBinary binary = reader.readBinaryData();
+        return binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()
+                ? binary.asUuid()
+                : binary.asUuid(UuidRepresentation.JAVA_LEGACY);
+    }
+
+    private static LocalDate readDate(BsonReader reader) {
+        return Instant.ofEpochMilli(reader.readDateTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static void writeUuid(BsonWriter writer, String name, UUID value) {
+        writer.writeName(name);
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeBinaryData(new BsonBinary(value, UuidRepresentation.STANDARD));
+        }
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        writer.writeName(name);
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeString(value);
+        }
+    }
+
+    private static void writeDate(BsonWriter writer, String name, LocalDate value) {
+        writer.writeName(name);
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeDateTime(value.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.paulocalderan.subscriptionservice.application.query;
+
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionResponse;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read-only lookups that return {@link SubscriptionResponse} without materializing the entity: the query
+ * projects the response fields and {@link SubscriptionResponseCodec} decodes the result. Reads run outside
+ * any surrounding transaction.
+ */
+@Component
+public class SubscriptionResponseReader {
+
+    private final MongoCollection<SubscriptionResponse> collection;
+
+    public SubscriptionResponseReader(MongoTemplate mongoTemplate) {
+        MongoCollection<Document> subscriptions =
+                mongoTemplate.getCollection(mongoTemplate.getCollectionName(Subscription.class));
+        this.collection = subscriptions
+                .withDocumentClass(SubscriptionResponse.class)
+                .withCodecRegistry(CodecRegistries.fromRegistries(
+                        CodecRegistries.fromCodecs(new SubscriptionResponseCodec()),
+                        subscriptions.getCodecRegistry()));
+    }
+
+    public Optional<SubscriptionResponse> findById(UUID id) {
+        return Optional.ofNullable(collection.find(Filters.eq("_id", id))
+                .projection(SubscriptionResponseCodec.PROJECTION)
+                .first());
+    }
+}
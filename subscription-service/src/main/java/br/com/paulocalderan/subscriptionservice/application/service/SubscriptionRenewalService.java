@@ -0,0 +1,204 @@
+package br.com.paulocalderan.subscriptionservice.application.service;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.expiry.SubscriptionExpiryIndex;
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.SubscriptionEventProducer;
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.SubscriptionRenewalRequestedEvent;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import br.com.paulocalderan.subscriptionservice.infrastructure.partition.WorkPartition;
+import br.com.paulocalderan.subscriptionservice.infrastructure.partition.WorkPartitionCoordinator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Requests the renewal of every ACTIVE subscription expired or expiring today, spread over the day by
+ * billing slot: the run for slot {@code s} requests the due subscriptions whose
+ * {@link Subscription#getBillingSlot() billing slot} is at most {@code s}, so each is normally requested in
+ * its own fifteen-minute slot and one missed by an earlier run is caught up by the next. The run is split into the
+ * {@link Subscription#PARTITIONS} partitions of the subscriptions' ids and shared through
+ * {@link WorkPartitionCoordinator} by every instance running it. Within a partition, due subscriptions are
+ * streamed in index order and handled in chunks of {@code subscription.renewal.batch-size}: the chunk's
+ * renewal events are sent as one pipelined batch, the subscriptions are marked as requested today so a rerun
+ * skips them, and the last {@code _id} is recorded in the partition's lease for progress reporting. Whoever
+ * takes over a crashed partition simply re-queries it, finding only what is still unrequested.
+ * <p>
+ * With {@link SubscriptionExpiryIndex} enabled and ready, due subscriptions are found in its per-partition
+ * sorted sets instead of MongoDB, which is then only read by id to build the events. Readiness is checked per
+ * partition, so an index invalidated by a failed update sends the rest of the run back to MongoDB.
+ * <p>
+ * A subscription whose payment fails stays due and is requested again on the next day's run, until
+ * {@link Subscription#MAX_RENEWAL_ATTEMPTS} suspends it.
+ */
+@Slf4j
+@Service
+public class SubscriptionRenewalService {
+
+    private static final String JOB_NAME = "renewal";
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionEventProducer eventProducer;
+    private final WorkPartitionCoordinator partitionCoordinator;
+    private final SubscriptionExpiryIndex expiryIndex;
+    private final SubscriptionMetrics metrics;
+    private final int batchSize;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong requestedByThisInstance = new AtomicLong();
+    private volatile double throughput;
+
+    public SubscriptionRenewalService(SubscriptionRepository subscriptionRepository,
+                                      SubscriptionEventProducer eventProducer,
+                                      WorkPartitionCoordinator partitionCoordinator,
+                                      SubscriptionExpiryIndex expiryIndex,
+                                      SubscriptionMetrics metrics,
+                                      @Value("${subscription.renewal.batch-size:1000}") int batchSize) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.eventProducer = eventProducer;
+        this.partitionCoordinator = partitionCoordinator;
+        this.expiryIndex = expiryIndex;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+
+        metrics.registerGauge("subscription_renewal_backlog",
+                "Subscriptions due for renewal not yet requested by the running renewal", backlog::get);
+        metrics.registerGauge("subscription_renewal_throughput",
+                "Renewal requests per second sent by this instance in the running renewal, zero when idle",
+                () -> throughput);
+    }
+
+    /**
+     * Works on the renewal of {@code billingSlot} of {@code today} until every partition is done, whichever
+     * instance processed it. Returns the number of renewals requested by this instance.
+     */
+    public long requestDueRenewals(LocalDate today, int billingSlot) {
+        backlog.set(countDue(today, billingSlot));
+        log.info("Starting renewal for {} slot {}: {} subscriptions due", today, billingSlot, backlog.get());
+
+        long start = System.nanoTime();
+        requestedByThisInstance.set(0);
+        try {
+            partitionCoordinator.run(JOB_NAME, today + ":" + billingSlot, Subscription.PARTITIONS,
+                    partition -> {
+                        if (expiryIndex.isReady()) {
+                            requestDueFromIndex(today, billingSlot, partition, start);
+                        } else {
+                            requestDueRenewals(today, billingSlot, partition, start);
+                        }
+                        // other instances drain the backlog too, so it is re-read rather than decremented
+                        backlog.set(countDue(today, billingSlot));
+                    });
+        } finally {
+            throughput = 0;
+            backlog.set(0);
+        }
+
+        long requested = requestedByThisInstance.get();
+        log.info("Renewal for {} slot {} completed: {} renewals requested by this instance in {} ms",
+                today, billingSlot, requested, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return requested;
+    }
+
+    private void requestDueRenewals(LocalDate today, int billingSlot, WorkPartition partition, long start) {
+        try (Stream<Subscription> due = subscriptionRepository.streamDueForRenewal(
+                today, billingSlot, partition.index(), batchSize)) {
+            Iterator<Subscription> iterator = due.iterator();
+            List<Subscription> chunk = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == batchSize || !iterator.hasNext()) {
+                    requestChunk(chunk, today, partition, start);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pages through the partition's due members of the expiry index. Every member found leaves the due range
+     * in the same iteration: due ones are requested and deferred to tomorrow, the others are re-scored from
+     * the document or removed, so the next page starts again from the lowest score.
+     */
+    private void requestDueFromIndex(LocalDate today, int billingSlot, WorkPartition partition, long start) {
+        double maxScore = SubscriptionExpiryIndex.score(today, billingSlot);
+        List<UUID> previous = List.of();
+        while (true) {
+            List<UUID> ids = expiryIndex.findDue(partition.index(), today, billingSlot, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            if (ids.equals(previous)) {
+                throw new IllegalStateException("Expiry index of partition " + partition.index() + " is not advancing");
+            }
+            previous = ids;
+
+            Map<UUID, Subscription> found = subscriptionRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Subscription::getId, Function.identity()));
+            List<Subscription> due = new ArrayList<>();
+            List<Subscription> alreadyRequested = new ArrayList<>();
+            List<Subscription> notDue = new ArrayList<>();
+            for (Subscription subscription : found.values()) {
+                if (subscription.getStatus() != Status.ACTIVE || subscription.getExpirationDate() == null
+                        || SubscriptionExpiryIndex.score(subscription) > maxScore) {
+                    notDue.add(subscription);
+                } else if (today.equals(subscription.getRenewalRequestedOn())) {
+                    alreadyRequested.add(subscription);
+                } else {
+                    due.add(subscription);
+                }
+            }
+
+            expiryIndex.remove(partition.index(), ids.stream().filter(id -> !found.containsKey(id)).toList());
+            expiryIndex.apply(notDue);
+            expiryIndex.deferToNextDay(alreadyRequested, today);
+            if (due.isEmpty()) {
+                partition.advance(ids.get(ids.size() - 1));
+            } else {
+                requestChunk(due, today, partition, start);
+            }
+        }
+    }
+
+    private long countDue(LocalDate today, int billingSlot) {
+        return expiryIndex.isReady()
+                ? expiryIndex.countDue(today, billingSlot)
+                : subscriptionRepository.countDueForRenewal(today, billingSlot);
+    }
+
+    /**
+     * Publishes before marking: a crash in between re-sends the chunk on resume rather than losing it, so
+     * the payment side must treat a repeated request for the same subscription and day as a duplicate.
+     */
+    private void requestChunk(List<Subscription> chunk, LocalDate today, WorkPartition partition, long start) {
+        List<SubscriptionRenewalRequestedEvent> events = chunk.stream()
+                .map(subscription -> new SubscriptionRenewalRequestedEvent(
+                        subscription.getId(),
+                        subscription.getUserId(),
+                        subscription.getPlan().name(),
+                        subscription.getPlan().getValue()))
+                .toList();
+        eventProducer.publishAll(events).join();
+
+        subscriptionRepository.markRenewalRequested(chunk.stream().map(Subscription::getId).toList(), today);
+        expiryIndex.deferToNextDay(chunk, today);
+        partition.advance(chunk.get(chunk.size() - 1).getId());
+        metrics.incrementRenewalRequested(chunk.size());
+
+        long requested = requestedByThisInstance.addAndGet(chunk.size());
+        throughput = requested / Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -1,45 +1,85 @@
 package br.com.paulocalderan.subscriptionservice.application.service;
 
+import br.com.paulocalderan.subscriptionservice.application.dto.PaymentBatchResult;
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionPageResponse;
 import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionRequest;
 import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionResponse;
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionSearchRequest;
 import br.com.paulocalderan.subscriptionservice.application.mapper.SubscriptionMapper;
+import br.com.paulocalderan.subscriptionservice.application.query.SubscriptionResponseReader;
 import br.com.paulocalderan.subscriptionservice.common.exception.DuplicateSubscriptionException;
+import br.com.paulocalderan.subscriptionservice.common.exception.InvalidSearchCriteriaException;
 import br.com.paulocalderan.subscriptionservice.common.exception.SubscriptionAlreadyCancelledException;
 import br.com.paulocalderan.subscriptionservice.common.exception.SubscriptionNotFoundException;
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
 import br.com.paulocalderan.subscriptionservice.domain.model.Status;
 import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.model.SubscriptionTransition;
 import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionSearchCriteria;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionSortKey;
 import br.com.paulocalderan.subscriptionservice.common.exception.UserNotFoundException;
 import br.com.paulocalderan.subscriptionservice.infrastructure.cache.SubscriptionCacheService;
 import br.com.paulocalderan.subscriptionservice.infrastructure.client.UserServiceClient;
 import br.com.paulocalderan.subscriptionservice.infrastructure.client.dto.UserResponse;
 import br.com.paulocalderan.subscriptionservice.infrastructure.client.dto.UserServiceResponse;
-import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.SubscriptionEventProducer;
+import br.com.paulocalderan.subscriptionservice.infrastructure.expiry.SubscriptionExpiryIndex;
+import br.com.paulocalderan.subscriptionservice.infrastructure.inbox.PaymentEventInbox;
 import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.*;
 import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import br.com.paulocalderan.subscriptionservice.infrastructure.outbox.SubscriptionOutbox;
+import br.com.paulocalderan.subscriptionservice.infrastructure.timeout.ProcessingTimeoutScheduler;
 import feign.FeignException;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
     private final SubscriptionMapper subscriptionMapper;
     private final SubscriptionCacheService cacheService;
-    private final SubscriptionEventProducer eventProducer;
+    private final SubscriptionOutbox outbox;
     private final SubscriptionMetrics metrics;
     private final UserServiceClient userServiceClient;
+    private final ProcessingTimeoutScheduler processingTimeouts;
+    private final SubscriptionExpiryIndex expiryIndex;
+    private final SubscriptionResponseReader responseReader;
+    private final PaymentEventInbox paymentEventInbox;
+
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    private static final Duration EXPORT_PERMIT_TIMEOUT = Duration.ofSeconds(5);
+    private static final String CURSOR_SEPARATOR = "|";
+
+    @Value("${subscription.export.max-documents-per-second:5000}")
+    private int exportMaxDocumentsPerSecond;
 
     @Transactional
     public SubscriptionResponse create(SubscriptionRequest request) {
@@ -56,9 +96,10 @@ public class SubscriptionService {
         Subscription subscription = subscriptionMapper.toEntity(request);
         Subscription savedSubscription = subscriptionRepository.save(subscription);
 
-        cacheService.invalidateByUserId(request.userId());
+        cacheService.writeThrough(savedSubscription);
+        processingTimeouts.register(savedSubscription.getId(), savedSubscription.getCreatedAt());
 
-        eventProducer.publishSubscriptionCreated(
+        outbox.append(
                 new SubscriptionCreatedEvent(
                         savedSubscription.getId(),
                         savedSubscription.getUserId(),
@@ -71,9 +112,8 @@ public class SubscriptionService {
 
     public SubscriptionResponse findById(UUID id) {
         log.info("Finding subscription by id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
+        return responseReader.findById(id)
                 .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
-        return subscriptionMapper.toResponse(subscription);
     }
 
     public SubscriptionResponse findActiveByUserId(UUID userId) {
@@ -84,31 +124,84 @@ public class SubscriptionService {
         return subscriptionMapper.toResponse(subscription);
     }
 
-    public List<SubscriptionResponse> findAll() {
-        log.info("Finding all subscriptions");
-        return subscriptionRepository.findAll().stream()
+    /**
+     * Active subscriptions of the given users, in request order. Users without one are left out.
+     */
+    public List<SubscriptionResponse> findActiveByUserIds(List<UUID> userIds) {
+        log.info("Finding active subscriptions for {} users", userIds.size());
+        Map<UUID, Subscription> active = cacheService.findActiveByUserIds(userIds);
+        return userIds.stream()
+                .distinct()
+                .map(active::get)
+                .filter(Objects::nonNull)
                 .map(subscriptionMapper::toResponse)
-                .collect(Collectors.toList());
+                .toList();
     }
 
-    @Transactional
-    public SubscriptionResponse cancel(UUID id) {
-        log.info("Cancelling subscription with id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
-                .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
+    /**
+     * Streams every subscription in {@code _id} order without loading the collection into memory.
+     * The cursor is read at most {@code subscription.export.max-documents-per-second} documents per second
+     * and runs outside any transaction, so long exports are not bound to a transaction lifetime.
+     * The returned stream holds an open cursor and must be closed by the caller.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Stream<SubscriptionResponse> streamAll(UUID afterId) {
+        log.info("Streaming subscriptions export after id: {}", afterId);
+        RateLimiter rateLimiter = RateLimiter.of("subscription-export", RateLimiterConfig.custom()
+                .limitForPeriod(exportMaxDocumentsPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(EXPORT_PERMIT_TIMEOUT)
+                .build());
+
+        return subscriptionRepository.streamAllOrderedById(afterId, EXPORT_BATCH_SIZE)
+                .peek(subscription -> RateLimiter.waitForPermission(rateLimiter))
+                .map(subscriptionMapper::toResponse);
+    }
+
+    public SubscriptionPageResponse search(SubscriptionSearchRequest request) {
+        log.info("Searching subscriptions with criteria: {}", request);
+        SubscriptionSortKey sortKey = parseSortKey(request.sortBy());
+
+        SubscriptionSearchCriteria.SubscriptionSearchCriteriaBuilder criteria = SubscriptionSearchCriteria.builder()
+                .plan(request.plan() != null ? parsePlan(request.plan()) : null)
+                .status(request.status() != null ? parseStatus(request.status()) : null)
+                .expirationFrom(request.expirationFrom())
+                .expirationTo(request.expirationTo())
+                .sortKey(sortKey)
+                .limit(request.size() + 1);
 
-        if (subscription.getStatus() == Status.CANCELLED) {
-            throw new SubscriptionAlreadyCancelledException("Subscription is already cancelled: " + id);
+        if (request.cursor() != null && !request.cursor().isBlank()) {
+            applyCursor(request.cursor(), sortKey, criteria);
         }
 
-        subscription.cancel();
-        Subscription updatedSubscription = subscriptionRepository.save(subscription);
+        List<Subscription> found = subscriptionRepository.search(criteria.build());
+        boolean hasNext = found.size() > request.size();
+        List<Subscription> page = hasNext ? found.subList(0, request.size()) : found;
+        String nextCursor = hasNext ? encodeCursor(page.get(page.size() - 1), sortKey) : null;
 
-        cacheService.invalidateByUserId(subscription.getUserId());
+        return new SubscriptionPageResponse(
+                page.stream().map(subscriptionMapper::toResponse).toList(),
+                page.size(),
+                hasNext,
+                nextCursor);
+    }
+
+    @Transactional
+    public SubscriptionResponse cancel(UUID id) {
+        log.info("Cancelling subscription with id: {}", id);
+        Subscription updatedSubscription = subscriptionRepository
+                .applyTransition(id, SubscriptionTransition.CANCEL, LocalDate.now())
+                .orElseThrow(() -> subscriptionRepository.existsById(id)
+                        ? new SubscriptionAlreadyCancelledException("Subscription is already cancelled: " + id)
+                        : new SubscriptionNotFoundException("Subscription not found with id: " + id));
+
+        cacheService.writeThrough(updatedSubscription);
+        processingTimeouts.cancel(id);
+        expiryIndex.updateAfterCommit(List.of(updatedSubscription));
 
         metrics.incrementSubscriptionCancelled(updatedSubscription.getPlan().name());
 
-        eventProducer.publishSubscriptionCancelled(
+        outbox.append(
                 new SubscriptionCancelledEvent(
                         updatedSubscription.getId(),
                         updatedSubscription.getUserId()));
@@ -117,70 +210,230 @@ public class SubscriptionService {
         return subscriptionMapper.toResponse(updatedSubscription);
     }
 
+    /**
+     * Renews the subscription if it is ACTIVE. Returns empty when it does not exist or is in another status.
+     */
     @Transactional
-    public Subscription renewSubscription(UUID id) {
+    public Optional<Subscription> renewSubscription(UUID id) {
         log.info("Renewing subscription with id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
-                .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
-
-        subscription.renew();
-        Subscription renewedSubscription = subscriptionRepository.save(subscription);
-
-        cacheService.invalidateByUserId(subscription.getUserId());
-
-        metrics.incrementSubscriptionRenewed(renewedSubscription.getPlan().name());
-
-        log.info("Subscription renewed successfully with id: {}", id);
-        return renewedSubscription;
+        Optional<Subscription> renewed = subscriptionRepository
+                .applyTransition(id, SubscriptionTransition.RENEW, LocalDate.now());
+
+        renewed.ifPresent(subscription -> {
+            cacheService.writeThrough(subscription);
+            expiryIndex.updateAfterCommit(List.of(subscription));
+            metrics.incrementSubscriptionRenewed(subscription.getPlan().name());
+            outbox.append(new SubscriptionRenewedEvent(subscription.getId(), subscription.getUserId()));
+            log.info("Subscription renewed successfully with id: {}", id);
+        });
+        return renewed;
     }
 
+    /**
+     * Registers a failed renewal attempt if the subscription is ACTIVE, suspending it once
+     * {@link Subscription#MAX_RENEWAL_ATTEMPTS} is reached. Returns empty when it does not exist or is
+     * in another status.
+     */
     @Transactional
-    public Subscription incrementFailedAttempt(UUID id) {
+    public Optional<Subscription> incrementFailedAttempt(UUID id) {
         log.info("Incrementing failed attempt for subscription with id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
-                .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
-
-        subscription.incrementFailedAttempt();
-        Subscription updatedSubscription = subscriptionRepository.save(subscription);
-
-        cacheService.invalidateByUserId(subscription.getUserId());
-
-        log.info("Failed attempt incremented for subscription with id: {}", id);
-        return updatedSubscription;
+        Optional<Subscription> updated = subscriptionRepository
+                .applyTransition(id, SubscriptionTransition.FAIL_RENEWAL_ATTEMPT, LocalDate.now());
+
+        updated.ifPresent(subscription -> {
+            cacheService.writeThrough(subscription);
+            metrics.incrementRenewalError(subscription.getPlan().name());
+            if (subscription.getStatus() == Status.SUSPENDED) {
+                expiryIndex.updateAfterCommit(List.of(subscription));
+                outbox.append(new SubscriptionSuspendedEvent(subscription.getId(), subscription.getUserId()));
+                log.info("Subscription suspended after {} failed attempts: {}", Subscription.MAX_RENEWAL_ATTEMPTS, id);
+            }
+            log.info("Failed attempt incremented for subscription with id: {}", id);
+        });
+        return updated;
     }
 
+    /**
+     * Activates the subscription if it is PROCESSING. Returns empty when it does not exist or is in another status.
+     */
     @Transactional
-    public Subscription activateSubscription(UUID id) {
+    public Optional<Subscription> activateSubscription(UUID id) {
         log.info("Activating subscription with id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
-                .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
-
-        subscription.activate();
-        Subscription activatedSubscription = subscriptionRepository.save(subscription);
+        Optional<Subscription> activated = subscriptionRepository
+                .applyTransition(id, SubscriptionTransition.ACTIVATE, LocalDate.now());
+
+        activated.ifPresent(subscription -> {
+            cacheService.writeThrough(subscription);
+            processingTimeouts.cancel(id);
+            expiryIndex.updateAfterCommit(List.of(subscription));
+            metrics.incrementSubscriptionCreated(subscription.getPlan().name());
+            log.info("Subscription activated successfully with id: {}", id);
+        });
+        return activated;
+    }
 
-        cacheService.invalidateByUserId(subscription.getUserId());
+    /**
+     * Marks the subscription as FAILED if it is PROCESSING. Returns empty when it does not exist or is in
+     * another status.
+     */
+    @Transactional
+    public Optional<Subscription> failSubscription(UUID id) {
+        log.info("Marking subscription as failed with id: {}", id);
+        Optional<Subscription> failed = subscriptionRepository
+                .applyTransition(id, SubscriptionTransition.FAIL, LocalDate.now());
+
+        failed.ifPresent(subscription -> {
+            cacheService.writeThrough(subscription);
+            processingTimeouts.cancel(id);
+            metrics.incrementSubscriptionFailed(subscription.getPlan().name());
+            log.info("Subscription marked as failed with id: {}", id);
+        });
+        return failed;
+    }
 
-        metrics.incrementSubscriptionCreated(activatedSubscription.getPlan().name());
+    /**
+     * Applies one payment event: a success activates a PROCESSING subscription or renews an ACTIVE one, a
+     * failure fails a PROCESSING subscription or registers a failed attempt on an ACTIVE one. The event id is
+     * recorded in the same transaction, so a redelivered event is skipped instead of renewing twice. Returns
+     * the changed subscription, or empty when the event was already applied or does not fit the
+     * subscription's status.
+     */
+    @Transactional
+    public Optional<Subscription> applyPaymentEvent(PaymentEvent event) {
+        if (paymentEventInbox.isProcessed(event.eventId())) {
+            log.info("Payment event {} already applied to subscription {}, ignoring", event.eventId(), event.subscriptionId());
+            return Optional.empty();
+        }
 
-        log.info("Subscription activated successfully with id: {}", id);
-        return activatedSubscription;
+        UUID id = event.subscriptionId();
+        Optional<Subscription> applied = switch (event) {
+            case PaymentProcessedSuccessEvent success -> activateSubscription(id).or(() -> renewSubscription(id));
+            case PaymentProcessedFailedEvent failed -> failSubscription(id).or(() -> incrementFailedAttempt(id));
+        };
+        paymentEventInbox.markProcessed(List.of(event.eventId()));
+        return applied;
     }
 
+    /**
+     * Applies a batch of payment events with a single read and a single bulk write. Events are grouped by
+     * subscription and folded in order through the domain transitions; an event that is not valid for the
+     * subscription's current state is skipped without affecting the rest of the batch. Events already
+     * applied, by an earlier delivery or earlier in the batch, are dropped, and the renewed and suspended
+     * notifications are stored in the outbox with the state change.
+     */
     @Transactional
-    public Subscription failSubscription(UUID id) {
-        log.info("Marking subscription as failed with id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
-                .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
+    public PaymentBatchResult applyPaymentEvents(List<PaymentEvent> events) {
+        Set<UUID> seen = new HashSet<>(paymentEventInbox.findProcessed(
+                events.stream().map(PaymentEvent::eventId).toList()));
+        List<PaymentEvent> fresh = events.stream().filter(event -> seen.add(event.eventId())).toList();
+        if (fresh.size() < events.size()) {
+            log.info("Ignoring {} payment events already applied", events.size() - fresh.size());
+        }
 
-        subscription.fail();
-        Subscription failedSubscription = subscriptionRepository.save(subscription);
+        Map<UUID, List<PaymentEvent>> eventsBySubscription = fresh.stream()
+                .collect(Collectors.groupingBy(PaymentEvent::subscriptionId, LinkedHashMap::new, Collectors.toList()));
 
-        cacheService.invalidateByUserId(subscription.getUserId());
+        Map<UUID, Subscription> subscriptions = subscriptionRepository.findAllById(eventsBySubscription.keySet())
+                .stream()
+                .collect(Collectors.toMap(Subscription::getId, Function.identity()));
 
-        metrics.incrementSubscriptionFailed(failedSubscription.getPlan().name());
+        Map<UUID, List<SubscriptionTransition>> appliedTransitions = new LinkedHashMap<>();
+        for (Map.Entry<UUID, List<PaymentEvent>> entry : eventsBySubscription.entrySet()) {
+            Subscription subscription = subscriptions.get(entry.getKey());
+            if (subscription == null) {
+                log.warn("Subscription {} not found, ignoring {} payment events", entry.getKey(), entry.getValue().size());
+                continue;
+            }
+
+            List<SubscriptionTransition> transitions = new ArrayList<>();
+            for (PaymentEvent event : entry.getValue()) {
+                foldPaymentEvent(subscription, event).ifPresent(transitions::add);
+            }
+            if (!transitions.isEmpty()) {
+                appliedTransitions.put(subscription.getId(), transitions);
+            }
+        }
 
-        log.info("Subscription marked as failed with id: {}", id);
-        return failedSubscription;
+        List<Subscription> changed = appliedTransitions.keySet().stream().map(subscriptions::get).toList();
+        Set<UUID> notApplied = subscriptionRepository.bulkUpdateState(changed);
+
+        List<Subscription> written = changed.stream().filter(s -> !notApplied.contains(s.getId())).toList();
+        cacheService.writeThroughAll(written);
+        // a failed attempt that leaves the subscription ACTIVE keeps its deferred score
+        expiryIndex.updateAfterCommit(written.stream()
+                .filter(subscription -> subscription.getStatus() != Status.ACTIVE
+                        || !appliedTransitions.get(subscription.getId()).stream()
+                                .allMatch(transition -> transition == SubscriptionTransition.FAIL_RENEWAL_ATTEMPT))
+                .toList());
+        processingTimeouts.cancelAll(written.stream()
+                .filter(subscription -> appliedTransitions.get(subscription.getId()).stream()
+                        .anyMatch(transition -> transition == SubscriptionTransition.ACTIVATE
+                                || transition == SubscriptionTransition.FAIL))
+                .map(Subscription::getId)
+                .toList());
+
+        List<Subscription> renewed = new ArrayList<>();
+        List<Subscription> suspended = new ArrayList<>();
+        for (Subscription subscription : written) {
+            for (SubscriptionTransition transition : appliedTransitions.get(subscription.getId())) {
+                String plan = subscription.getPlan().name();
+                switch (transition) {
+                    case ACTIVATE -> metrics.incrementSubscriptionCreated(plan);
+                    case FAIL -> metrics.incrementSubscriptionFailed(plan);
+                    case RENEW -> {
+                        metrics.incrementSubscriptionRenewed(plan);
+                        renewed.add(subscription);
+                    }
+                    case FAIL_RENEWAL_ATTEMPT -> metrics.incrementRenewalError(plan);
+                    default -> { }
+                }
+            }
+            if (subscription.getStatus() == Status.SUSPENDED) {
+                suspended.add(subscription);
+            }
+        }
+
+        List<SubscriptionEvent> notifications = new ArrayList<>();
+        renewed.forEach(subscription -> notifications.add(
+                new SubscriptionRenewedEvent(subscription.getId(), subscription.getUserId())));
+        suspended.forEach(subscription -> notifications.add(
+                new SubscriptionSuspendedEvent(subscription.getId(), subscription.getUserId())));
+        outbox.appendAll(notifications);
+
+        List<PaymentEvent> retryIndividually = notApplied.stream()
+                .flatMap(id -> eventsBySubscription.get(id).stream())
+                .toList();
+        paymentEventInbox.markProcessed(fresh.stream()
+                .filter(event -> !notApplied.contains(event.subscriptionId()))
+                .map(PaymentEvent::eventId)
+                .toList());
+
+        log.info("Applied payment batch: {} events, {} subscriptions written, {} changed concurrently",
+                events.size(), written.size(), notApplied.size());
+        return new PaymentBatchResult(renewed, suspended, retryIndividually);
+    }
+
+    private Optional<SubscriptionTransition> foldPaymentEvent(Subscription subscription, PaymentEvent event) {
+        try {
+            if (event instanceof PaymentProcessedSuccessEvent) {
+                if (subscription.getStatus() == Status.PROCESSING) {
+                    subscription.activate();
+                    return Optional.of(SubscriptionTransition.ACTIVATE);
+                }
+                subscription.renew();
+                return Optional.of(SubscriptionTransition.RENEW);
+            }
+            if (subscription.getStatus() == Status.PROCESSING) {
+                subscription.fail();
+                return Optional.of(SubscriptionTransition.FAIL);
+            }
+            subscription.incrementFailedAttempt();
+            return Optional.of(SubscriptionTransition.FAIL_RENEWAL_ATTEMPT);
+        } catch (IllegalStateException e) {
+            log.warn("Ignoring {} for subscription {} in status {}: {}",
+                    event.eventType(), subscription.getId(), subscription.getStatus(), e.getMessage());
+            return Optional.empty();
+        }
     }
 
     public List<Subscription> findExpiringOnDate(java.time.LocalDate date) {
@@ -188,30 +441,83 @@ public class SubscriptionService {
         return subscriptionRepository.findExpiredOrExpiringOnDate(date);
     }
 
+    /**
+     * Cancels the given stale PROCESSING candidates in one bulk write and records their cancellation events
+     * in one outbox insert. Candidates that changed since they were read are skipped; one changing during
+     * this transaction aborts it with a write conflict. Returns the number cancelled.
+     */
     @Transactional
-    public void cancelStaleProcessingSubscription(UUID id) {
-        log.info("Cancelling stale processing subscription with id: {}", id);
-        Subscription subscription = subscriptionRepository.findById(id)
-                .orElseThrow(() -> new SubscriptionNotFoundException("Subscription not found with id: " + id));
+    public int cancelStaleProcessingSubscriptions(List<UUID> candidateIds, LocalDate startedOnOrBefore) {
+        List<Subscription> cancelled = subscriptionRepository
+                .cancelStaleProcessing(candidateIds, startedOnOrBefore, LocalDate.now());
+        if (cancelled.isEmpty()) {
+            return 0;
+        }
 
-        if (subscription.getStatus() != Status.PROCESSING) {
-            log.warn("Subscription {} is not in PROCESSING status, cannot cancel as stale. Current status: {}", 
-                    id, subscription.getStatus());
-            return;
+        cacheService.writeThroughAll(cancelled);
+        processingTimeouts.cancelAll(cancelled.stream().map(Subscription::getId).toList());
+        outbox.appendAll(cancelled.stream()
+                .map(subscription -> new SubscriptionCancelledEvent(subscription.getId(), subscription.getUserId()))
+                .toList());
+
+        log.info("Cancelled {} stale processing subscriptions of {} candidates", cancelled.size(), candidateIds.size());
+        return cancelled.size();
+    }
+
+    private SubscriptionSortKey parseSortKey(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) {
+            return SubscriptionSortKey.EXPIRATION_DATE;
+        }
+        try {
+            return SubscriptionSortKey.valueOf(sortBy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchCriteriaException("Invalid sort key: " + sortBy);
         }
+    }
 
-        subscription.cancel();
-        subscription.setExpirationDate(java.time.LocalDate.now());
-        Subscription updatedSubscription = subscriptionRepository.save(subscription);
+    private Plan parsePlan(String plan) {
+        try {
+            return Plan.fromString(plan);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchCriteriaException("Invalid plan: " + plan);
+        }
+    }
 
-        cacheService.invalidateByUserId(subscription.getUserId());
+    private Status parseStatus(String status) {
+        try {
+            return Status.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchCriteriaException("Invalid status: " + status);
+        }
+    }
 
-        eventProducer.publishSubscriptionCancelled(
-                new SubscriptionCancelledEvent(
-                        updatedSubscription.getId(),
-                        updatedSubscription.getUserId()));
+    private String encodeCursor(Subscription last, SubscriptionSortKey sortKey) {
+        String sortValue = switch (sortKey) {
+            case EXPIRATION_DATE -> last.getExpirationDate().toString();
+            case STATUS -> last.getStatus().name();
+        };
+        String raw = sortKey.name() + CURSOR_SEPARATOR + sortValue + CURSOR_SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        log.info("Stale processing subscription cancelled successfully with id: {} (expirationDate set to today)", id);
+    private void applyCursor(String cursor, SubscriptionSortKey sortKey,
+                             SubscriptionSearchCriteria.SubscriptionSearchCriteriaBuilder criteria) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(Pattern.quote(CURSOR_SEPARATOR), 3);
+            if (parts.length != 3 || !sortKey.name().equals(parts[0])) {
+                throw new InvalidSearchCriteriaException("Cursor does not match sort key: " + sortKey);
+            }
+            Object afterSortValue = switch (sortKey) {
+                case EXPIRATION_DATE -> LocalDate.parse(parts[1]);
+                case STATUS -> Status.valueOf(parts[1]);
+            };
+            criteria.afterSortValue(afterSortValue).afterId(UUID.fromString(parts[2]));
+        } catch (InvalidSearchCriteriaException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InvalidSearchCriteriaException("Invalid cursor: " + cursor, e);
+        }
     }
 
     private void validateUserExists(UUID userId) {
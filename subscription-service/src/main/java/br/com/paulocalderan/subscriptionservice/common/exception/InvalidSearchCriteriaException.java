@@ -0,0 +1,11 @@
+package br.com.paulocalderan.subscriptionservice.common.exception;
+
+public class InvalidSearchCriteriaException extends RuntimeException {
+    public InvalidSearchCriteriaException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchCriteriaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
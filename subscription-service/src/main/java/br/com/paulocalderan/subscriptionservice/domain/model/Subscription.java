@@ -8,18 +8,34 @@ import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.UUID;
 
 @Document(collection = "subscriptions")
-@CompoundIndex(
-    name = "active_subscription_per_user",
-    def = "{'userId': 1, 'status': 1}",
-    unique = true,
-    partialFilter = "{'status': 'ACTIVE'}"
-)
+@CompoundIndexes({
+    @CompoundIndex(
+        name = "active_subscription_per_user",
+        def = "{'userId': 1, 'status': 1}",
+        unique = true,
+        partialFilter = "{'status': 'ACTIVE'}"
+    ),
+    @CompoundIndex(name = "user_id", def = "{'userId': 1}"),
+    @CompoundIndex(name = "expiration_date_id", def = "{'expirationDate': 1, '_id': 1}"),
+    @CompoundIndex(name = "status_expiration_date_id", def = "{'status': 1, 'expirationDate': 1, '_id': 1}"),
+    @CompoundIndex(name = "plan_expiration_date_id", def = "{'plan': 1, 'expirationDate': 1, '_id': 1}"),
+    @CompoundIndex(name = "status_id", def = "{'status': 1, '_id': 1}"),
+    @CompoundIndex(name = "plan_status_id", def = "{'plan': 1, 'status': 1, '_id': 1}"),
+    @CompoundIndex(name = "status_partition_key_id", def = "{'status': 1, 'partitionKey': 1, '_id': 1}"),
+    @CompoundIndex(name = "status_partition_key_expiration_date_billing_slot_id",
+            def = "{'status': 1, 'partitionKey': 1, 'expirationDate': 1, 'billingSlot': 1, '_id': 1}"),
+    @CompoundIndex(name = "partition_key_billing_slot", def = "{'partitionKey': 1, 'billingSlot': 1}")
+})
 @Getter
 @Setter
 @Builder
@@ -27,6 +43,20 @@ import java.util.UUID;
 @AllArgsConstructor
 public class Subscription {
 
+    public static final int MAX_RENEWAL_ATTEMPTS = 3;
+
+    /**
+     * Number of hash buckets subscriptions are spread over, so batch jobs can split their work across instances.
+     */
+    public static final int PARTITIONS = 64;
+
+    /**
+     * Number of fifteen-minute slots of the day over which renewals are spread.
+     */
+    public static final int BILLING_SLOTS = 96;
+
+    public static final Duration BILLING_SLOT_LENGTH = Duration.ofDays(1).dividedBy(BILLING_SLOTS);
+
     @Id
     private UUID id;
 
@@ -36,6 +66,11 @@ public class Subscription {
 
     private LocalDate startDate;
 
+    /**
+     * When the subscription was created; its PROCESSING timeout runs from here.
+     */
+    private Instant createdAt;
+
     private LocalDate expirationDate;
 
     private Status status;
@@ -43,44 +78,59 @@ public class Subscription {
     @Builder.Default
     private Integer renewalAttempts = 0;
 
+    /**
+     * Day on which a renewal was last requested, so the renewal run sends at most one request per day.
+     */
+    private LocalDate renewalRequestedOn;
+
+    /**
+     * Hash bucket of the id, see {@link #partitionOf(UUID)}. Stored so jobs can select a bucket by index.
+     */
+    private Integer partitionKey;
+
+    /**
+     * Slot of the day in which the renewal is requested, see {@link #billingSlotOf(UUID)}. Stable for the
+     * subscription's lifetime.
+     */
+    private Integer billingSlot;
+
     @Version
     private Long version;
 
     public void renew() {
-        if (this.status != Status.ACTIVE) {
-            throw new IllegalStateException("Only active subscriptions can be renewed");
-        }
+        requireAllowed(SubscriptionTransition.RENEW);
         this.startDate = LocalDate.now();
-        this.expirationDate = calculateNewExpirationDate();
+        this.expirationDate = nextExpirationDate(this.startDate);
         this.renewalAttempts = 0;
     }
 
     public void incrementFailedAttempt() {
+        requireAllowed(SubscriptionTransition.FAIL_RENEWAL_ATTEMPT);
         this.renewalAttempts++;
-        if (this.renewalAttempts >= 3) {
-            this.status = Status.SUSPENDED;
+        if (this.renewalAttempts >= MAX_RENEWAL_ATTEMPTS) {
+            this.status = SubscriptionTransition.FAIL_RENEWAL_ATTEMPT.getTargetStatus();
         }
     }
 
     public void cancel() {
-        if (this.status == Status.CANCELLED) {
-            throw new IllegalStateException("Subscription is already cancelled");
-        }
-        this.status = Status.CANCELLED;
+        requireAllowed(SubscriptionTransition.CANCEL);
+        this.status = SubscriptionTransition.CANCEL.getTargetStatus();
+    }
+
+    public void cancelStale() {
+        requireAllowed(SubscriptionTransition.CANCEL_STALE);
+        this.status = SubscriptionTransition.CANCEL_STALE.getTargetStatus();
+        this.expirationDate = LocalDate.now();
     }
 
     public void activate() {
-        if (this.status != Status.PROCESSING) {
-            throw new IllegalStateException("Only processing subscriptions can be activated");
-        }
-        this.status = Status.ACTIVE;
+        requireAllowed(SubscriptionTransition.ACTIVATE);
+        this.status = SubscriptionTransition.ACTIVATE.getTargetStatus();
     }
 
     public void fail() {
-        if (this.status != Status.PROCESSING) {
-            throw new IllegalStateException("Only processing subscriptions can be marked as failed");
-        }
-        this.status = Status.FAILED;
+        requireAllowed(SubscriptionTransition.FAIL);
+        this.status = SubscriptionTransition.FAIL.getTargetStatus();
     }
 
     public boolean isActive() {
@@ -88,8 +138,30 @@ public class Subscription {
                LocalDate.now().isBefore(expirationDate.plusDays(1));
     }
 
-    private LocalDate calculateNewExpirationDate() {
-        return LocalDate.now().plusMonths(1);
+    public static int partitionOf(UUID id) {
+        return Math.floorMod(id.hashCode(), PARTITIONS);
+    }
+
+    /**
+     * Taken from other bits of the id than {@link #partitionOf(UUID)}, so the subscriptions of one slot are
+     * still spread over every partition.
+     */
+    public static int billingSlotOf(UUID id) {
+        return Math.floorMod(id.getMostSignificantBits() >>> 16, BILLING_SLOTS);
+    }
+
+    public static int billingSlotAt(LocalTime time) {
+        return (int) (Duration.ofNanos(time.toNanoOfDay()).toMinutes() / BILLING_SLOT_LENGTH.toMinutes());
+    }
+
+    public static LocalDate nextExpirationDate(LocalDate renewedOn) {
+        return renewedOn.plusMonths(1);
+    }
+
+    private void requireAllowed(SubscriptionTransition transition) {
+        if (!transition.isAllowedFrom(this.status)) {
+            throw new IllegalStateException(transition.getRejectionMessage());
+        }
     }
 }
 
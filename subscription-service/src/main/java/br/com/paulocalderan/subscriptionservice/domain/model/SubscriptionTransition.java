@@ -0,0 +1,36 @@
+package br.com.paulocalderan.subscriptionservice.domain.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * State transitions of a {@link Subscription}, the statuses each one may start from and the status it leads
+ * to. Both the in-memory domain methods and the conditional database updates are built from these rules.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum SubscriptionTransition {
+    ACTIVATE(EnumSet.of(Status.PROCESSING), Status.ACTIVE, "Only processing subscriptions can be activated"),
+    FAIL(EnumSet.of(Status.PROCESSING), Status.FAILED, "Only processing subscriptions can be marked as failed"),
+    RENEW(EnumSet.of(Status.ACTIVE), Status.ACTIVE, "Only active subscriptions can be renewed"),
+    FAIL_RENEWAL_ATTEMPT(EnumSet.of(Status.ACTIVE), Status.SUSPENDED,
+            "Only active subscriptions can register failed renewal attempts"),
+    CANCEL(EnumSet.complementOf(EnumSet.of(Status.CANCELLED)), Status.CANCELLED, "Subscription is already cancelled"),
+    CANCEL_STALE(EnumSet.of(Status.PROCESSING), Status.CANCELLED,
+            "Only processing subscriptions can be cancelled as stale");
+
+    private final Set<Status> allowedFrom;
+    /**
+     * Status after the transition; {@link #FAIL_RENEWAL_ATTEMPT} only reaches it once the attempts reach
+     * {@link Subscription#MAX_RENEWAL_ATTEMPTS}, and keeps the current status before that.
+     */
+    private final Status targetStatus;
+    private final String rejectionMessage;
+
+    public boolean isAllowedFrom(Status status) {
+        return allowedFrom.contains(status);
+    }
+}
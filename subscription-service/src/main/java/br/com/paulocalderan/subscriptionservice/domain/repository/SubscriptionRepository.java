@@ -7,15 +7,18 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface SubscriptionRepository extends MongoRepository<Subscription, UUID> {
+public interface SubscriptionRepository extends MongoRepository<Subscription, UUID>, SubscriptionRepositoryCustom {
 
     Optional<Subscription> findByUserIdAndStatus(UUID userId, Status status);
 
+    List<Subscription> findByUserIdInAndStatus(Collection<UUID> userIds, Status status);
+
     List<Subscription> findByStatus(Status status);
 
     @Query("{'expirationDate': ?0, 'status': 'ACTIVE'}")
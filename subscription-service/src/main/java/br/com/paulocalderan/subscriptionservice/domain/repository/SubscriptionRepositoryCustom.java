@@ -0,0 +1,105 @@
+package br.com.paulocalderan.subscriptionservice.domain.repository;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.model.SubscriptionTransition;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface SubscriptionRepositoryCustom {
+
+    /**
+     * Opens a cursor over all subscriptions in {@code _id} order, starting right after {@code afterId}
+     * (or from the beginning when it is {@code null}). The returned stream must be closed by the caller.
+     */
+    Stream<Subscription> streamAllOrderedById(UUID afterId, int batchSize);
+
+    /**
+     * Opens a cursor over the user ids of all ACTIVE subscriptions. The returned stream must be closed by
+     * the caller.
+     */
+    Stream<UUID> streamActiveUserIds(int batchSize);
+
+    /**
+     * Opens a cursor over the ACTIVE subscriptions expiring between {@code from} and {@code to}, both
+     * inclusive. The returned stream must be closed by the caller.
+     */
+    Stream<Subscription> streamActiveExpiringBetween(LocalDate from, LocalDate to, int batchSize);
+
+    /**
+     * Opens a cursor over the ACTIVE subscriptions of partition {@code partitionKey} expired or expiring on
+     * {@code today}, with a billing slot up to {@code billingSlot}, whose renewal has not been requested today.
+     * Ordered as the {@code status_partition_key_expiration_date_billing_slot_id} index, so no in-memory sort
+     * is needed. Requested subscriptions leave the result, so a rerun needs no checkpoint. The returned stream
+     * must be closed by the caller.
+     */
+    Stream<Subscription> streamDueForRenewal(LocalDate today, int billingSlot, int partitionKey, int batchSize);
+
+    long countDueForRenewal(LocalDate today, int billingSlot);
+
+    /**
+     * Opens a cursor, in {@code _id} order after {@code afterId}, over the subscriptions of partition
+     * {@code partitionKey} in {@code status}. The returned stream must be closed by the caller.
+     */
+    Stream<Subscription> streamByStatusAndPartition(Status status, int partitionKey, UUID afterId, int batchSize);
+
+    /**
+     * Opens a cursor over the ids of the PROCESSING subscriptions of partition {@code partitionKey} started on
+     * or before {@code startedOnOrBefore}, or without a start date. Both branches scan the PROCESSING entries
+     * of the partition in the {@code status_partition_key_id} index and check the start date on the
+     * document; PROCESSING is short-lived, so those entries are few. The returned stream must be closed by
+     * the caller.
+     */
+    Stream<UUID> streamStaleProcessingIds(int partitionKey, LocalDate startedOnOrBefore, int batchSize);
+
+    /**
+     * Opens a cursor over the id, creation time and start date of every PROCESSING subscription. The returned
+     * stream must be closed by the caller.
+     */
+    Stream<Subscription> streamProcessingSince(int batchSize);
+
+    /**
+     * Cancels, with {@code today} as expiration date, those of {@code ids} still PROCESSING and started on or
+     * before {@code startedOnOrBefore}, in one updateMany. Returns the cancelled subscriptions with their id,
+     * user id, plan, new state and version; inside a transaction these are exactly the documents updated.
+     */
+    List<Subscription> cancelStaleProcessing(List<UUID> ids, LocalDate startedOnOrBefore, LocalDate today);
+
+    /**
+     * Sets the partition key and billing slot of subscriptions stored before they existed, in any status or
+     * none, found through the {@code partition_key_billing_slot} index. Returns the number of documents
+     * updated.
+     */
+    long assignMissingHashKeys(int batchSize);
+
+    /**
+     * Records that the renewal of the given subscriptions was requested on {@code today}.
+     */
+    long markRenewalRequested(List<UUID> ids, LocalDate today);
+
+    /**
+     * Seek-paginated search: filters on plan, status and expiration range, sorted by
+     * {@code (sortKey, _id)} and resumed from the criteria keyset instead of skipping documents.
+     */
+    List<Subscription> search(SubscriptionSearchCriteria criteria);
+
+    /**
+     * Applies {@code transition} in a single conditional findAndModify, guarded by the statuses the
+     * transition is allowed from. Returns the updated document, or empty when the subscription does not
+     * exist or is not in an allowed status.
+     */
+    Optional<Subscription> applyTransition(UUID id, SubscriptionTransition transition, LocalDate today);
+
+    /**
+     * Writes the state of each subscription (status, dates and renewal attempts) in one unordered bulk write.
+     * Each update is guarded by the {@code version} the subscription was read with. Returns the ids whose
+     * update was not applied because the document changed concurrently; the others have their version
+     * advanced to match the stored document, as {@code save} does.
+     */
+    Set<UUID> bulkUpdateState(List<Subscription> subscriptions);
+}
@@ -0,0 +1,358 @@
+package br.com.paulocalderan.subscriptionservice.domain.repository;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.model.SubscriptionTransition;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class SubscriptionRepositoryImpl implements SubscriptionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Stream<Subscription> streamAllOrderedById(UUID afterId, int batchSize) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(batchSize);
+
+        if (afterId != null) {
+            query.addCriteria(Criteria.where("_id").gt(afterId));
+        }
+
+        return mongoTemplate.stream(query, Subscription.class);
+    }
+
+    /**
+     * Projects only {@code userId} and sorts by it, so the query is covered by the partial
+     * active_subscription_per_user index, which holds exactly the ACTIVE subscriptions.
+     */
+    @Override
+    public Stream<UUID> streamActiveUserIds(int batchSize) {
+        Query query = new Query(Criteria.where("status").is(Status.ACTIVE))
+                .with(Sort.by(Sort.Direction.ASC, "userId"))
+                .cursorBatchSize(batchSize);
+        query.fields().include("userId").exclude("_id");
+
+        return mongoTemplate.stream(query, Subscription.class).map(Subscription::getUserId);
+    }
+
+    @Override
+    public Stream<Subscription> streamActiveExpiringBetween(LocalDate from, LocalDate to, int batchSize) {
+        Query query = new Query(Criteria.where("status").is(Status.ACTIVE)
+                .and("expirationDate").gte(from).lte(to))
+                .cursorBatchSize(batchSize);
+
+        return mongoTemplate.stream(query, Subscription.class);
+    }
+
+    @Override
+    public Stream<Subscription> streamDueForRenewal(LocalDate today, int billingSlot, int partitionKey, int batchSize) {
+        Query query = new Query(dueForRenewal(today, billingSlot).and("partitionKey").is(partitionKey))
+                .with(Sort.by(Sort.Direction.ASC, "expirationDate", "billingSlot", "_id"))
+                .cursorBatchSize(batchSize);
+
+        return mongoTemplate.stream(query, Subscription.class);
+    }
+
+    @Override
+    public long countDueForRenewal(LocalDate today, int billingSlot) {
+        return mongoTemplate.count(new Query(dueForRenewal(today, billingSlot)), Subscription.class);
+    }
+
+    @Override
+    public Stream<Subscription> streamByStatusAndPartition(Status status, int partitionKey, UUID afterId, int batchSize) {
+        Criteria criteria = Criteria.where("status").is(status).and("partitionKey").is(partitionKey);
+        if (afterId != null) {
+            criteria.and("_id").gt(afterId);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(batchSize);
+
+        return mongoTemplate.stream(query, Subscription.class);
+    }
+
+    @Override
+    public Stream<UUID> streamStaleProcessingIds(int partitionKey, LocalDate startedOnOrBefore, int batchSize) {
+        Query query = new Query(staleProcessing(startedOnOrBefore).and("partitionKey").is(partitionKey))
+                .cursorBatchSize(batchSize);
+        query.fields().include("_id");
+
+        return mongoTemplate.stream(query, Subscription.class).map(Subscription::getId);
+    }
+
+    @Override
+    public Stream<Subscription> streamProcessingSince(int batchSize) {
+        Query query = new Query(Criteria.where("status").is(Status.PROCESSING)).cursorBatchSize(batchSize);
+        query.fields().include("_id").include("createdAt").include("startDate");
+
+        return mongoTemplate.stream(query, Subscription.class);
+    }
+
+    @Override
+    public List<Subscription> cancelStaleProcessing(List<UUID> ids, LocalDate startedOnOrBefore, LocalDate today) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Query query = new Query(staleProcessing(startedOnOrBefore).and("_id").in(ids));
+        query.fields().include("_id").include("userId").include("plan").include("version");
+        List<Subscription> stale = mongoTemplate.find(query, Subscription.class);
+        if (stale.isEmpty()) {
+            return stale;
+        }
+
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(stale.stream().map(Subscription::getId).toList())
+                        .and("status").in(SubscriptionTransition.CANCEL_STALE.getAllowedFrom())),
+                updateFor(SubscriptionTransition.CANCEL_STALE, today),
+                Subscription.class);
+
+        for (Subscription subscription : stale) {
+            subscription.setStatus(SubscriptionTransition.CANCEL_STALE.getTargetStatus());
+            subscription.setExpirationDate(today);
+            subscription.setVersion(nextVersion(subscription.getVersion()));
+        }
+        return stale;
+    }
+
+    private static Criteria staleProcessing(LocalDate startedOnOrBefore) {
+        return Criteria.where("status").is(Status.PROCESSING)
+                .orOperator(
+                        Criteria.where("startDate").lte(startedOnOrBefore),
+                        Criteria.where("startDate").is(null));
+    }
+
+    @Override
+    public long assignMissingHashKeys(int batchSize) {
+        // both branches lead with partitionKey, so each is served by the partition_key_billing_slot index
+        // whatever the status, including documents without one
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("partitionKey").is(null),
+                Criteria.where("partitionKey").ne(null).and("billingSlot").is(null)))
+                .cursorBatchSize(batchSize);
+        query.fields().include("_id");
+
+        long updated = 0;
+        try (Stream<Subscription> missing = mongoTemplate.stream(query, Subscription.class)) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Subscription.class);
+            int pending = 0;
+            for (Iterator<Subscription> iterator = missing.iterator(); iterator.hasNext(); ) {
+                UUID id = iterator.next().getId();
+                bulk.updateOne(new Query(Criteria.where("_id").is(id)),
+                        new Update()
+                                .set("partitionKey", Subscription.partitionOf(id))
+                                .set("billingSlot", Subscription.billingSlotOf(id)));
+                if (++pending == batchSize || !iterator.hasNext()) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Subscription.class);
+                    pending = 0;
+                }
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public long markRenewalRequested(List<UUID> ids, LocalDate today) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.updateMulti(
+                        new Query(Criteria.where("_id").in(ids)),
+                        new Update().set("renewalRequestedOn", today),
+                        Subscription.class)
+                .getModifiedCount();
+    }
+
+    private static Criteria dueForRenewal(LocalDate today, int billingSlot) {
+        return Criteria.where("status").is(Status.ACTIVE)
+                .and("expirationDate").lte(today)
+                .and("billingSlot").lte(billingSlot)
+                .and("renewalRequestedOn").ne(today);
+    }
+
+    @Override
+    public List<Subscription> search(SubscriptionSearchCriteria criteria) {
+        String sortField = criteria.sortKey().getField();
+        List<Criteria> filters = new ArrayList<>();
+
+        if (criteria.plan() != null) {
+            filters.add(Criteria.where("plan").is(criteria.plan()));
+        }
+        if (criteria.status() != null) {
+            filters.add(Criteria.where("status").is(criteria.status()));
+        }
+        if (criteria.expirationFrom() != null || criteria.expirationTo() != null) {
+            Criteria expiration = Criteria.where("expirationDate");
+            if (criteria.expirationFrom() != null) {
+                expiration.gte(criteria.expirationFrom());
+            }
+            if (criteria.expirationTo() != null) {
+                expiration.lte(criteria.expirationTo());
+            }
+            filters.add(expiration);
+        }
+        if (criteria.afterId() != null) {
+            filters.add(new Criteria().orOperator(
+                    Criteria.where(sortField).gt(criteria.afterSortValue()),
+                    new Criteria().andOperator(
+                            Criteria.where(sortField).is(criteria.afterSortValue()),
+                            Criteria.where("_id").gt(criteria.afterId()))));
+        }
+
+        Query query = new Query();
+        if (!filters.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(filters));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, sortField, "_id")).limit(criteria.limit());
+
+        return mongoTemplate.find(query, Subscription.class);
+    }
+
+    @Override
+    public Optional<Subscription> applyTransition(UUID id, SubscriptionTransition transition, LocalDate today) {
+        Query query = new Query(Criteria.where("_id").is(id)
+                .and("status").in(transition.getAllowedFrom()));
+
+        Subscription updated = mongoTemplate.findAndModify(
+                query,
+                updateFor(transition, today),
+                FindAndModifyOptions.options().returnNew(true),
+                Subscription.class);
+
+        return Optional.ofNullable(updated);
+    }
+
+    @Override
+    public Set<UUID> bulkUpdateState(List<Subscription> subscriptions) {
+        if (subscriptions.isEmpty()) {
+            return Set.of();
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Subscription.class);
+        for (Subscription subscription : subscriptions) {
+            bulk.updateOne(
+                    new Query(Criteria.where("_id").is(subscription.getId())
+                            .and("version").is(subscription.getVersion())),
+                    stateUpdate(subscription));
+        }
+
+        BulkWriteResult result = bulk.execute();
+        Set<UUID> notApplied = result.getMatchedCount() == subscriptions.size()
+                ? Set.of()
+                : findNotApplied(subscriptions);
+
+        subscriptions.stream()
+                .filter(subscription -> !notApplied.contains(subscription.getId()))
+                .forEach(subscription -> subscription.setVersion(nextVersion(subscription.getVersion())));
+        return notApplied;
+    }
+
+    /**
+     * Unordered bulk results do not say which updates matched, so the written documents are compared
+     * against the expected state: anything that is not exactly the next version with our state was
+     * changed by another writer.
+     */
+    private Set<UUID> findNotApplied(List<Subscription> expected) {
+        Map<UUID, Subscription> current = mongoTemplate.find(
+                        new Query(Criteria.where("_id").in(expected.stream().map(Subscription::getId).toList())),
+                        Subscription.class)
+                .stream()
+                .collect(Collectors.toMap(Subscription::getId, Function.identity()));
+
+        Set<UUID> notApplied = new HashSet<>();
+        for (Subscription subscription : expected) {
+            Subscription stored = current.get(subscription.getId());
+            boolean applied = stored != null
+                    && Objects.equals(stored.getVersion(), nextVersion(subscription.getVersion()))
+                    && stored.getStatus() == subscription.getStatus()
+                    && Objects.equals(stored.getStartDate(), subscription.getStartDate())
+                    && Objects.equals(stored.getExpirationDate(), subscription.getExpirationDate())
+                    && Objects.equals(stored.getRenewalAttempts(), subscription.getRenewalAttempts());
+            if (!applied) {
+                notApplied.add(subscription.getId());
+            }
+        }
+        return notApplied;
+    }
+
+    /**
+     * Server-side equivalent of the matching {@link Subscription} domain method, built from the same
+     * {@link SubscriptionTransition} target statuses and {@link Subscription} constants. Every update also
+     * bumps {@code version} so concurrent writers relying on optimistic locking still detect the change.
+     */
+    private static UpdateDefinition updateFor(SubscriptionTransition transition, LocalDate today) {
+        return switch (transition) {
+            case ACTIVATE, FAIL, CANCEL -> new Update()
+                    .set("status", transition.getTargetStatus())
+                    .inc("version", 1);
+            case RENEW -> new Update()
+                    .set("startDate", today)
+                    .set("expirationDate", Subscription.nextExpirationDate(today))
+                    .set("renewalAttempts", 0)
+                    .inc("version", 1);
+            // a single $set stage: every expression sees the attempts count from before the increment
+            case FAIL_RENEWAL_ATTEMPT -> AggregationUpdate.update().set(SetOperation
+                    .set("renewalAttempts").toValue(ArithmeticOperators.valueOf("renewalAttempts").add(1))
+                    .and().set("status").toValue(ConditionalOperators
+                            .when(ComparisonOperators.valueOf("renewalAttempts")
+                                    .greaterThanEqualToValue(Subscription.MAX_RENEWAL_ATTEMPTS - 1))
+                            .then(transition.getTargetStatus().name())
+                            .otherwiseValueOf("status"))
+                    .and().set("version").toValue(ArithmeticOperators.valueOf("version").add(1)));
+            case CANCEL_STALE -> new Update()
+                    .set("status", transition.getTargetStatus())
+                    .set("expirationDate", today)
+                    .inc("version", 1);
+        };
+    }
+
+    /**
+     * Writes the fields a domain transition may change, as the {@link Subscription} method left them, and bumps
+     * {@code version} so concurrent writers relying on optimistic locking still detect the change.
+     */
+    private static Update stateUpdate(Subscription subscription) {
+        return new Update()
+                .set("status", subscription.getStatus())
+                .set("startDate", subscription.getStartDate())
+                .set("expirationDate", subscription.getExpirationDate())
+                .set("renewalAttempts", subscription.getRenewalAttempts())
+                .inc("version", 1);
+    }
+
+    /**
+     * {@code $inc} on a document without a version, written before versioning, stores 1.
+     */
+    private static Long nextVersion(Long version) {
+        return version == null ? 1L : version + 1;
+    }
+}
@@ -0,0 +1,24 @@
+package br.com.paulocalderan.subscriptionservice.domain.repository;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Filters and keyset position for a subscription search. When {@code afterId} is set, only documents
+ * strictly after {@code (afterSortValue, afterId)} in {@code (sortKey, _id)} order are returned.
+ */
+@Builder
+public record SubscriptionSearchCriteria(
+    Plan plan,
+    Status status,
+    LocalDate expirationFrom,
+    LocalDate expirationTo,
+    SubscriptionSortKey sortKey,
+    Object afterSortValue,
+    UUID afterId,
+    int limit
+) {}
@@ -0,0 +1,13 @@
+package br.com.paulocalderan.subscriptionservice.domain.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum SubscriptionSortKey {
+    EXPIRATION_DATE("expirationDate"),
+    STATUS("status");
+
+    private final String field;
+}
@@ -0,0 +1,264 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Per-instance Bloom filter of users with an ACTIVE subscription, enabled with
+ * {@code subscription.cache.active-user-filter.enabled=true}. Lets lookups answer "definitely not
+ * subscribed" without touching Redis or MongoDB.
+ * <p>
+ * Built from MongoDB when the application is ready and rebuilt periodically, which also drops users that
+ * are no longer active. Activations are added to the writing instance's filter before their transaction
+ * commits and broadcast to the other instances on a Redis pub/sub channel once it has. Pub/sub does not
+ * replay messages missed while the channel was not subscribed, so when the subscription is lost every user
+ * is reported as possibly active until the channel is subscribed again and a rebuild has completed. Until
+ * the first build completes every user is reported as possibly active as well.
+ */
+@Slf4j
+@Component
+public class ActiveUserFilter implements MessageListener, SubscriptionListener {
+
+    public static final String ACTIVATION_CHANNEL = "subscription:active-users:added";
+    private static final String ID_SEPARATOR = ",";
+    private static final int STREAM_BATCH_SIZE = 5000;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    private volatile UserIdBloomFilter filter;
+    private volatile UserIdBloomFilter rebuilding;
+    private volatile long activeUsers;
+
+    /**
+     * Whether the current filter holds every activation: set by a rebuild that ran entirely while
+     * subscribed to {@link #ACTIVATION_CHANNEL}, cleared when the subscription is lost.
+     */
+    private volatile boolean complete;
+    private volatile boolean subscribed;
+    private final AtomicLong subscriptionLosses = new AtomicLong();
+    private final ExecutorService resubscribeRebuilds = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "active-user-filter-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Serializes rebuilds. Not {@code synchronized}: a rebuild streams from MongoDB and would pin a virtual
+     * thread to its carrier for the whole scan.
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public ActiveUserFilter(SubscriptionRepository subscriptionRepository,
+                            StringRedisTemplate stringRedisTemplate,
+                            SubscriptionMetrics metrics,
+                            @Value("${subscription.cache.active-user-filter.enabled:false}") boolean enabled,
+                            @Value("${subscription.cache.active-user-filter.expected-insertions:10000000}") long expectedInsertions,
+                            @Value("${subscription.cache.active-user-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+
+        metrics.registerGauge("subscription_active_user_filter_bytes",
+                "Memory used by the active user Bloom filter",
+                () -> filter != null ? filter.sizeInBytes() : 0);
+        metrics.registerGauge("subscription_active_user_filter_false_positive_rate",
+                "Estimated false-positive rate of the active user Bloom filter",
+                () -> filter != null ? filter.expectedFalsePositiveRate() : 0);
+        metrics.registerGauge("subscription_active_user_filter_users",
+                "Active users loaded into the Bloom filter by the last rebuild",
+                () -> activeUsers);
+    }
+
+    /**
+     * Runs before the instance reports ready, so it never serves traffic with an empty filter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Error building active user filter, lookups will not be filtered until the next rebuild", e);
+        }
+    }
+
+    /**
+     * Streams the user ids of all ACTIVE subscriptions into a new filter and swaps it in. Activations
+     * received meanwhile are added to both filters. The new filter is sized for twice the last count,
+     * or the configured expected insertions if larger, to keep the false-positive rate stable as the
+     * user base grows.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        rebuildLock.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        // Activations broadcast while not subscribed, or lost to a reconnect during the scan, may be missing.
+        boolean subscribedBeforeScan = subscribed;
+        long lossesBeforeScan = subscriptionLosses.get();
+        long start = System.nanoTime();
+        UserIdBloomFilter next = new UserIdBloomFilter(Math.max(expectedInsertions, activeUsers * 2), falsePositiveRate);
+        rebuilding = next;
+        long count = 0;
+        try (Stream<UUID> userIds = subscriptionRepository.streamActiveUserIds(STREAM_BATCH_SIZE)) {
+            Iterator<UUID> iterator = userIds.iterator();
+            while (iterator.hasNext()) {
+                next.put(iterator.next());
+                count++;
+            }
+            // Publish the new filter before clearing rebuilding, see add.
+            filter = next;
+            activeUsers = count;
+            complete = subscribedBeforeScan && subscriptionLosses.get() == lossesBeforeScan;
+        } finally {
+            rebuilding = null;
+        }
+
+        log.info("Active user filter rebuilt with {} users ({} bytes) in {} ms",
+                count, next.sizeInBytes(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * {@code false} means the user definitely has no ACTIVE subscription.
+     */
+    public boolean mightBeActive(UUID userId) {
+        UserIdBloomFilter current = filter;
+        return current == null || !complete || current.mightContain(userId);
+    }
+
+    public boolean isReady() {
+        return filter != null && complete;
+    }
+
+    /**
+     * Adds newly activated users here and on every other instance.
+     */
+    public void add(Collection<UUID> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+        addLocally(userIds);
+        try {
+            stringRedisTemplate.convertAndSend(ACTIVATION_CHANNEL,
+                    userIds.stream().map(UUID::toString).collect(Collectors.joining(ID_SEPARATOR)));
+        } catch (Exception e) {
+            log.error("Error broadcasting {} activations to the active user filter", userIds.size(), e);
+        }
+    }
+
+    /**
+     * The listener container resubscribes after a lost connection, sometimes without reporting the
+     * unsubscribe first. Activations broadcast meanwhile never arrive, so the filter is bypassed and rebuilt
+     * from MongoDB.
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        if (!enabled || !ACTIVATION_CHANNEL.equals(new String(channel, StandardCharsets.UTF_8))) {
+            return;
+        }
+        if (subscribed) {
+            markSubscriptionLost();
+        }
+        subscribed = true;
+        // a build still running at first subscription started unsubscribed and comes out incomplete
+        if (!complete && (filter != null || rebuildLock.isLocked())) {
+            log.warn("Subscribed to {} after activations may have been missed, rebuilding the active user filter",
+                    ACTIVATION_CHANNEL);
+            resubscribeRebuilds.execute(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    log.error("Error rebuilding active user filter, lookups stay unfiltered until the next rebuild", e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onChannelUnsubscribed(byte[] channel, long count) {
+        if (enabled && ACTIVATION_CHANNEL.equals(new String(channel, StandardCharsets.UTF_8))) {
+            log.warn("Unsubscribed from {}, active user filter bypassed until it is rebuilt", ACTIVATION_CHANNEL);
+            subscribed = false;
+            markSubscriptionLost();
+        }
+    }
+
+    private void markSubscriptionLost() {
+        subscriptionLosses.incrementAndGet();
+        complete = false;
+    }
+
+    @PreDestroy
+    void shutdownRebuilds() {
+        resubscribeRebuilds.shutdownNow();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!enabled) {
+            return;
+        }
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        addLocally(Arrays.stream(body.split(ID_SEPARATOR)).map(UUID::fromString).toList());
+    }
+
+    /**
+     * Adds users to this instance's filter only. Called by the writing instance before its transaction
+     * commits, so its own lookups never miss an activation; a rolled back activation only adds a false
+     * positive until the next rebuild.
+     */
+    void addLocally(Collection<UUID> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+        // Read rebuilding before filter: rebuild publishes the new filter before clearing rebuilding, so an
+        // add is never lost between the two.
+        UserIdBloomFilter building = rebuilding;
+        UserIdBloomFilter current = filter;
+        for (UUID userId : userIds) {
+            if (building != null) {
+                building.put(userId);
+            }
+            if (current != null) {
+                current.put(userId);
+            }
+        }
+    }
+}
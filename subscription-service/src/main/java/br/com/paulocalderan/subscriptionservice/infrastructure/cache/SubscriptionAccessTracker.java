@@ -0,0 +1,96 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tracks which users are looked up most, for {@link SubscriptionCacheWarmer}. Each instance keeps the
+ * heavy hitters in a size-bounded Caffeine set, whose TinyLFU frequency sketch admits frequently read users
+ * over one-off ones. {@link #flush} merges them into a Redis sorted set scored by last flush time, so the
+ * candidates survive restarts and are shared by every instance.
+ */
+@Slf4j
+@Component
+public class SubscriptionAccessTracker {
+
+    static final String RECENT_ACCESS_KEY = "subscription:cache:recent-access";
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final long trackedUsers;
+    private final Duration recentWindow;
+    private final Cache<UUID, Boolean> accessed;
+
+    public SubscriptionAccessTracker(StringRedisTemplate stringRedisTemplate,
+                                     @Value("${subscription.cache.warm-up.enabled:false}") boolean enabled,
+                                     @Value("${subscription.cache.warm-up.tracked-users:100000}") long trackedUsers,
+                                     @Value("${subscription.cache.warm-up.recent-window:24h}") Duration recentWindow) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.trackedUsers = trackedUsers;
+        this.recentWindow = recentWindow;
+        this.accessed = Caffeine.newBuilder()
+                .maximumSize(trackedUsers)
+                .expireAfterAccess(recentWindow)
+                .build();
+    }
+
+    public void record(UUID userId) {
+        if (enabled) {
+            accessed.get(userId, key -> Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Writes this instance's tracked users to Redis and trims the shared set to the users seen within
+     * {@code subscription.cache.warm-up.recent-window}, newest first, at most {@code tracked-users}.
+     */
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        List<UUID> userIds = List.copyOf(accessed.asMap().keySet());
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        ZSetOperations<String, String> zSet = stringRedisTemplate.opsForZSet();
+        for (int from = 0; from < userIds.size(); from += FLUSH_CHUNK_SIZE) {
+            Set<ZSetOperations.TypedTuple<String>> chunk = new HashSet<>();
+            for (UUID userId : userIds.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, userIds.size()))) {
+                chunk.add(new DefaultTypedTuple<>(userId.toString(), (double) now));
+            }
+            zSet.add(RECENT_ACCESS_KEY, chunk);
+        }
+        zSet.removeRangeByScore(RECENT_ACCESS_KEY, 0, now - recentWindow.toMillis());
+        zSet.removeRange(RECENT_ACCESS_KEY, 0, -(trackedUsers + 1));
+        log.debug("Flushed {} recently accessed users", userIds.size());
+    }
+
+    /**
+     * The most recently accessed users across all instances, newest first.
+     */
+    public List<UUID> recentlyAccessed(int limit) {
+        Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(RECENT_ACCESS_KEY, 0, limit - 1);
+        List<UUID> userIds = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> userIds.add(UUID.fromString(member)));
+        }
+        return userIds;
+    }
+}
@@ -3,15 +3,56 @@ package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
 import br.com.paulocalderan.subscriptionservice.domain.model.Status;
 import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
 import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Lookup of active subscriptions: an optional {@link ActiveUserFilter} and in-process
+ * {@link SubscriptionNearCache}, then Redis, then MongoDB. Transitions write the new state through to Redis
+ * once their transaction commits, so a rolled back write never reaches the cache and a reader cannot
+ * re-cache the old state between the invalidation and the commit.
+ * <p>
+ * With {@code subscription.cache.refresh.enabled=true} entries are kept in Redis for
+ * {@code subscription.cache.refresh.stale-bound} past their TTL. Reads close to expiry reload the entry in
+ * the background with XFetch probability, and reads past it serve the stale value while it reloads, which
+ * also covers MongoDB being slow or unavailable for up to the stale bound.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -19,37 +60,594 @@ public class SubscriptionCacheService {
 
     private final RedisTemplate<String, Subscription> redisTemplate;
     private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionNearCache nearCache;
+    private final SubscriptionMetrics metrics;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ActiveUserFilter activeUserFilter;
+    private final SubscriptionAccessTracker accessTracker;
 
     private static final String CACHE_KEY_PREFIX = "subscription:active:";
-    private static final Duration CACHE_TTL = Duration.ofHours(1);
+    private static final String LAYER_NEAR = "near";
+    private static final String LAYER_REDIS = "redis";
+    private static final String LAYER_FILTER = "filter";
+    private static final String RESULT_HIT = "hit";
+    private static final String RESULT_NEGATIVE_HIT = "negative_hit";
+    private static final String RESULT_MISS = "miss";
+    private static final String RESULT_STALE_HIT = "stale_hit";
+    private static final String RESULT_FALSE_POSITIVE = "false_positive";
+    private static final String REFRESH_EARLY = "early";
+    private static final String REFRESH_STALE = "stale";
+    private static final int REFRESH_QUEUE_CAPACITY = 1000;
+    private static final double LOAD_TIME_SMOOTHING = 0.2;
+    private static final String LOAD_LEASE_KEY_PREFIX = "subscription:active:load-lease:";
+    private static final Duration LOAD_LEASE_POLL_INTERVAL = Duration.ofMillis(10);
+    private static final String WRITE_WRITTEN = "written";
+    private static final String WRITE_STALE = "stale";
+
+    /**
+     * Sets KEYS[1] to ARGV[1] for ARGV[3] milliseconds unless it already holds the same subscription
+     * (bytes 3-18, the id) with a version (last 8 bytes) newer than ARGV[2]. A value without a version
+     * (ARGV[2] = -1, the {@link #NO_ACTIVE_SUBSCRIPTION} marker) never replaces a versioned entry. Relies on
+     * format 1 of {@link SubscriptionRedisSerializer}; entries in any other format are simply overwritten.
+     */
+    private static final RedisScript<Long> VERSION_GUARDED_SET = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and string.byte(current, 1) == 1 then
+                local presence = string.byte(current, 2)
+                if presence >= 128 and ARGV[2] == '-1' then
+                    return 0
+                end
+                if presence % 2 == 1 and presence >= 128
+                        and string.sub(current, 3, 18) == string.sub(ARGV[1], 3, 18) then
+                    local version = 0
+                    for i = #current - 7, #current do
+                        version = version * 256 + string.byte(current, i)
+                    end
+                    if version > tonumber(ARGV[2]) then
+                        return 0
+                    end
+                end
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    /**
+     * Deletes the load lease KEYS[1] only while it still holds this loader's token ARGV[1], so a loader
+     * that outlived its lease never releases the lease another instance took over.
+     */
+    private static final RedisScript<Long> RELEASE_LOAD_LEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Cached in place of a subscription for users without an active one. Being stored under the same key,
+     * it is replaced by the same write-throughs as a real entry.
+     */
+    static final Subscription NO_ACTIVE_SUBSCRIPTION = Subscription.builder().renewalAttempts(null).build();
+
+    private final ConcurrentMap<UUID, CompletableFuture<Optional<Subscription>>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private final SubscriptionRedisSerializer valueSerializer = new SubscriptionRedisSerializer();
+
+    private final ExecutorService refreshExecutor = new ThreadPoolExecutor(
+            1, 4, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "subscription-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    /** Smoothed duration of a database load, the XFetch recompute cost. */
+    private volatile double loadTimeMillis;
+
+    @Value("${subscription.cache.negative-ttl:5m}")
+    private Duration negativeCacheTtl;
+
+    @Value("${subscription.cache.min-ttl:1m}")
+    private Duration minCacheTtl;
+
+    @Value("${subscription.cache.max-ttl:7d}")
+    private Duration maxCacheTtl;
+
+    @Value("${subscription.cache.single-flight.distributed:false}")
+    private boolean distributedSingleFlight;
+
+    @Value("${subscription.cache.single-flight.lease-ttl:500ms}")
+    private Duration loadLeaseTtl;
+
+    @Value("${subscription.cache.change-stream.enabled:false}")
+    private boolean changeStreamEnabled;
+
+    @Value("${subscription.cache.refresh.enabled:false}")
+    private boolean refreshEnabled;
+
+    @Value("${subscription.cache.refresh.stale-bound:1m}")
+    private Duration staleBound;
+
+    @Value("${subscription.cache.refresh.beta:1.0}")
+    private double refreshBeta;
 
     public Optional<Subscription> findActiveByUserId(UUID userId) {
+        if (!activeUserFilter.mightBeActive(userId)) {
+            metrics.incrementCacheRequest(LAYER_FILTER, RESULT_NEGATIVE_HIT);
+            return Optional.empty();
+        }
+
+        accessTracker.record(userId);
+        Optional<Subscription> subscription = lookup(userId);
+        if (subscription.isEmpty() && activeUserFilter.isReady()) {
+            metrics.incrementCacheRequest(LAYER_FILTER, RESULT_FALSE_POSITIVE);
+        }
+        return subscription;
+    }
+
+    private Optional<Subscription> lookup(UUID userId) {
+        Subscription nearCached = nearCache.getIfPresent(userId);
+        if (nearCached != null) {
+            return fromCache(LAYER_NEAR, nearCached);
+        }
+
         String cacheKey = CACHE_KEY_PREFIX + userId;
 
         try {
-            Subscription cached = redisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.debug("Cache hit for user: {}", userId);
-                return Optional.of(cached);
+            if (refreshEnabled) {
+                Optional<Optional<Subscription>> refreshed = findWithRefresh(userId, cacheKey);
+                if (refreshed.isPresent()) {
+                    return refreshed.get();
+                }
+            } else {
+                Subscription cached = redisTemplate.opsForValue().get(cacheKey);
+                if (cached != null) {
+                    log.debug("Cache hit for user: {}", userId);
+                    nearCache.put(userId, cached);
+                    return fromCache(LAYER_REDIS, cached);
+                }
             }
 
             log.debug("Cache miss for user: {}, fetching from database", userId);
+            metrics.incrementCacheRequest(LAYER_REDIS, RESULT_MISS);
+            return loadSingleFlight(userId, cacheKey);
+        } catch (Exception e) {
+            log.error("Error accessing cache for user: {}", userId, e);
+            return subscriptionRepository.findByUserIdAndStatus(userId, Status.ACTIVE);
+        }
+    }
+
+    /**
+     * Resolves many users at once: {@link ActiveUserFilter}, near cache, then one Redis {@code MGET}, then one MongoDB {@code $in}
+     * query for the misses, whose results (including absences) are cached in one pipelined round trip.
+     * Returns the active subscriptions by user id; users without one are absent from the map. Stale
+     * entries of the refresh mode are served as they are, without scheduling a reload.
+     */
+    public Map<UUID, Subscription> findActiveByUserIds(Collection<UUID> userIds) {
+        Map<UUID, Subscription> found = new HashMap<>();
+        List<UUID> remaining = new ArrayList<>();
+        long filtered = 0;
+        long nearHits = 0;
+        long nearNegativeHits = 0;
+        for (UUID userId : new LinkedHashSet<>(userIds)) {
+            if (!activeUserFilter.mightBeActive(userId)) {
+                filtered++;
+                continue;
+            }
+            Subscription nearCached = nearCache.getIfPresent(userId);
+            if (nearCached == null) {
+                remaining.add(userId);
+            } else if (isNoActiveSubscription(nearCached)) {
+                nearNegativeHits++;
+            } else {
+                nearHits++;
+                found.put(userId, nearCached);
+            }
+        }
+        metrics.incrementCacheRequest(LAYER_FILTER, RESULT_NEGATIVE_HIT, filtered);
+        metrics.incrementCacheRequest(LAYER_NEAR, RESULT_HIT, nearHits);
+        metrics.incrementCacheRequest(LAYER_NEAR, RESULT_NEGATIVE_HIT, nearNegativeHits);
+        if (remaining.isEmpty()) {
+            return found;
+        }
+
+        List<UUID> misses = new ArrayList<>();
+        boolean redisAvailable = true;
+        try {
+            List<Subscription> cached = redisTemplate.opsForValue()
+                    .multiGet(remaining.stream().map(userId -> CACHE_KEY_PREFIX + userId).toList());
+            long hits = 0;
+            long negativeHits = 0;
+            for (int i = 0; i < remaining.size(); i++) {
+                UUID userId = remaining.get(i);
+                Subscription entry = cached != null ? cached.get(i) : null;
+                if (entry == null) {
+                    misses.add(userId);
+                    continue;
+                }
+                nearCache.put(userId, entry);
+                if (isNoActiveSubscription(entry)) {
+                    negativeHits++;
+                } else {
+                    hits++;
+                    found.put(userId, entry);
+                }
+            }
+            metrics.incrementCacheRequest(LAYER_REDIS, RESULT_HIT, hits);
+            metrics.incrementCacheRequest(LAYER_REDIS, RESULT_NEGATIVE_HIT, negativeHits);
+            metrics.incrementCacheRequest(LAYER_REDIS, RESULT_MISS, misses.size());
+        } catch (Exception e) {
+            log.error("Error accessing cache for {} users, fetching from database", remaining.size(), e);
+            misses = remaining;
+            redisAvailable = false;
+        }
+        if (misses.isEmpty()) {
+            return found;
+        }
+
+        long start = System.nanoTime();
+        List<Subscription> loaded = subscriptionRepository.findByUserIdInAndStatus(misses, Status.ACTIVE);
+        recordLoadTime(System.nanoTime() - start);
+        loaded.forEach(subscription -> found.put(subscription.getUserId(), subscription));
+
+        if (redisAvailable) {
+            fillAll(misses, found);
+        }
+        log.debug("Bulk lookup for {} users: {} loaded from database", remaining.size(), misses.size());
+        return found;
+    }
+
+    /**
+     * Caches the state of each of {@code userIds}: its subscription in {@code active}, or the absence of
+     * one. Used by {@link SubscriptionCacheWarmer}.
+     */
+    public void warm(Collection<UUID> userIds, Collection<Subscription> active) {
+        Map<UUID, Subscription> byUserId = new HashMap<>();
+        active.forEach(subscription -> byUserId.put(subscription.getUserId(), subscription));
+        fillAll(List.copyOf(userIds), byUserId);
+    }
+
+    /**
+     * Caches the loaded state of each user through the version-guarded SET, all in one pipeline.
+     */
+    private void fillAll(List<UUID> userIds, Map<UUID, Subscription> loaded) {
+        try {
+            setAllIfNotNewer(userIds, userIds.stream()
+                    .map(userId -> loaded.getOrDefault(userId, NO_ACTIVE_SUBSCRIPTION))
+                    .toList());
+        } catch (Exception e) {
+            log.error("Error filling cache for {} users", userIds.size(), e);
+        }
+    }
+
+    /**
+     * Runs the version-guarded SET of {@code values.get(i)} under the key of {@code userIds.get(i)} for every
+     * user in one pipeline, and returns one result per user: 1 if written, 0 if a newer version was kept. The
+     * script is loaded first in the same pipeline so the following EVALSHA calls cannot miss it.
+     */
+    private List<Object> setAllIfNotNewer(List<UUID> userIds, List<Subscription> values) {
+        byte[] script = VERSION_GUARDED_SET.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        String sha = VERSION_GUARDED_SET.getSha1();
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptLoad(script);
+            for (int i = 0; i < userIds.size(); i++) {
+                Subscription subscription = values.get(i);
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1,
+                        (CACHE_KEY_PREFIX + userIds.get(i)).getBytes(StandardCharsets.UTF_8),
+                        valueSerializer.serialize(subscription),
+                        versionArgument(subscription),
+                        ascii(storedTtlFor(subscription).toMillis()));
+            }
+            return null;
+        });
+        return results.size() <= 1 ? List.of() : results.subList(1, results.size());
+    }
+
+    /**
+     * Reads the entry together with its remaining TTL in one round trip. Returns empty on a miss.
+     */
+    private Optional<Optional<Subscription>> findWithRefresh(UUID userId, String cacheKey) {
+        byte[] rawKey = cacheKey.getBytes(StandardCharsets.UTF_8);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().get(rawKey);
+            connection.keyCommands().pTtl(rawKey);
+            return null;
+        });
+        if (!(results.get(0) instanceof Subscription cached)) {
+            return Optional.empty();
+        }
+
+        long remainingMillis = (Long) results.get(1) - staleBound.toMillis();
+        if (remainingMillis <= 0) {
+            log.debug("Serving stale cache entry for user: {}, refreshing", userId);
+            metrics.incrementCacheRequest(LAYER_REDIS, RESULT_STALE_HIT);
+            scheduleRefresh(userId, cacheKey, REFRESH_STALE);
+            return Optional.of(isNoActiveSubscription(cached) ? Optional.empty() : Optional.of(cached));
+        }
+
+        if (shouldRefreshEarly(remainingMillis)) {
+            scheduleRefresh(userId, cacheKey, REFRESH_EARLY);
+        }
+        log.debug("Cache hit for user: {}", userId);
+        nearCache.put(userId, cached);
+        return Optional.of(fromCache(LAYER_REDIS, cached));
+    }
+
+    /**
+     * XFetch: refresh when {@code -delta * beta * ln(rand)} reaches the remaining TTL, so the chance grows
+     * as expiry approaches and with the cost of a reload.
+     */
+    private boolean shouldRefreshEarly(long remainingMillis) {
+        double random = ThreadLocalRandom.current().nextDouble();
+        return -loadTimeMillis * refreshBeta * Math.log(random) >= remainingMillis;
+    }
+
+    private void scheduleRefresh(UUID userId, String cacheKey, String trigger) {
+        if (inFlightLoads.containsKey(userId)) {
+            return;
+        }
+        metrics.incrementCacheRefresh(trigger);
+        refreshExecutor.execute(() -> {
+            try {
+                loadSingleFlight(userId, cacheKey);
+            } catch (Exception e) {
+                log.warn("Background cache refresh failed for user: {}, serving stale entry", userId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdownRefreshExecutor() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Concurrent misses for the same user share one database load. With
+     * {@code subscription.cache.single-flight.distributed=true} instances also coordinate through a short
+     * Redis lease: the instance holding it loads, the others wait for it to fill the cache. The lease holds a
+     * random token and is released only by its owner.
+     */
+    private Optional<Subscription> loadSingleFlight(UUID userId, String cacheKey) {
+        CompletableFuture<Optional<Subscription>> flight = new CompletableFuture<>();
+        CompletableFuture<Optional<Subscription>> existing = inFlightLoads.putIfAbsent(userId, flight);
+        if (existing != null) {
+            metrics.incrementCacheLoadCoalesced("local");
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Optional<Subscription> loaded = loadAndCache(userId, cacheKey);
+            flight.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(userId, flight);
+        }
+    }
+
+    private Optional<Subscription> loadAndCache(UUID userId, String cacheKey) {
+        String leaseKey = LOAD_LEASE_KEY_PREFIX + userId;
+        String leaseToken = UUID.randomUUID().toString();
+        boolean leaseHeld = false;
+
+        if (distributedSingleFlight) {
+            leaseHeld = Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, leaseToken, loadLeaseTtl));
+            if (!leaseHeld) {
+                Subscription filled = awaitCacheFill(cacheKey);
+                if (filled != null) {
+                    metrics.incrementCacheLoadCoalesced("distributed");
+                    nearCache.put(userId, filled);
+                    return isNoActiveSubscription(filled) ? Optional.empty() : Optional.of(filled);
+                }
+            }
+        }
+
+        try {
+            long start = System.nanoTime();
             Optional<Subscription> subscription = subscriptionRepository
                     .findByUserIdAndStatus(userId, Status.ACTIVE);
+            recordLoadTime(System.nanoTime() - start);
 
             if (subscription.isPresent()) {
-                redisTemplate.opsForValue().set(cacheKey, subscription.get(), CACHE_TTL);
+                if (setIfNotNewer(cacheKey, subscription.get())) {
+                    nearCache.put(userId, subscription.get());
+                }
                 log.debug("Cached subscription for user: {}", userId);
+            } else {
+                // A write-through that landed while we were reading is newer than this result.
+                if (setIfNotNewer(cacheKey, NO_ACTIVE_SUBSCRIPTION)) {
+                    nearCache.put(userId, NO_ACTIVE_SUBSCRIPTION);
+                }
+                log.debug("Cached absence of active subscription for user: {}", userId);
             }
-
             return subscription;
+        } finally {
+            if (leaseHeld) {
+                releaseLoadLease(leaseKey, leaseToken);
+            }
+        }
+    }
+
+    private void releaseLoadLease(String leaseKey, String leaseToken) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LOAD_LEASE, List.of(leaseKey), leaseToken);
         } catch (Exception e) {
-            log.error("Error accessing cache for user: {}", userId, e);
-            return subscriptionRepository.findByUserIdAndStatus(userId, Status.ACTIVE);
+            log.warn("Error releasing load lease {}, it expires in {}", leaseKey, loadLeaseTtl, e);
+        }
+    }
+
+    private void recordLoadTime(long nanos) {
+        double millis = nanos / 1_000_000.0;
+        loadTimeMillis = loadTimeMillis == 0
+                ? millis
+                : loadTimeMillis + LOAD_TIME_SMOOTHING * (millis - loadTimeMillis);
+    }
+
+    private Subscription awaitCacheFill(String cacheKey) {
+        long deadline = System.nanoTime() + loadLeaseTtl.toNanos();
+        try {
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(LOAD_LEASE_POLL_INTERVAL.toMillis());
+                Subscription cached = redisTemplate.opsForValue().get(cacheKey);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Publishes the state a transition produced once the surrounding transaction commits (or right away
+     * outside one). Every state is written through with a version guard, so a writer holding an older
+     * version never replaces a newer entry. A subscription in any status other than ACTIVE is stored as a
+     * tombstone, read as "no active subscription" for {@code subscription.cache.negative-ttl}; unlike a
+     * DEL, it keeps a loader that read the ACTIVE state before the commit from caching it again.
+     * With {@code subscription.cache.change-stream.enabled=true} this is a no-op: the
+     * {@link SubscriptionChangeStreamWatcher} applies every committed write instead.
+     */
+    public void writeThrough(Subscription subscription) {
+        writeThroughAll(List.of(subscription));
+    }
+
+    public void writeThroughAll(Collection<Subscription> subscriptions) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        activeUserFilter.addLocally(subscriptions.stream()
+                .filter(subscription -> subscription.getStatus() == Status.ACTIVE)
+                .map(Subscription::getUserId)
+                .toList());
+        if (changeStreamEnabled) {
+            return;
+        }
+        List<Subscription> changed = List.copyOf(subscriptions);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyCommitted(changed);
+            return;
         }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyCommitted(changed);
+            }
+        });
+    }
+
+    /**
+     * Brings the cache in line with already committed subscription states, with every version-guarded SET in
+     * one pipeline. Users whose SET failed are invalidated instead.
+     */
+    public void applyCommitted(Collection<Subscription> changed) {
+        List<Subscription> subscriptions = List.copyOf(changed);
+        List<UUID> userIds = subscriptions.stream().map(Subscription::getUserId).toList();
+        List<Object> results;
+        try {
+            results = setAllIfNotNewer(userIds, subscriptions);
+        } catch (RedisPipelineException e) {
+            // the results of the commands that did run, with an exception in place of each failed one
+            List<Object> partial = e.getResults();
+            results = partial.isEmpty() ? List.of() : partial.subList(1, partial.size());
+        } catch (Exception e) {
+            log.error("Error writing through cache for {} users, invalidating", userIds.size(), e);
+            results = List.of();
+        }
+
+        List<UUID> written = new ArrayList<>();
+        List<UUID> notServable = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof Long accepted) {
+                metrics.incrementCacheWriteThrough(accepted == 1L ? WRITE_WRITTEN : WRITE_STALE);
+                written.add(userIds.get(i));
+            } else {
+                if (result instanceof Exception e) {
+                    log.error("Error writing through cache for user: {}, invalidating", userIds.get(i), e);
+                }
+                notServable.add(userIds.get(i));
+            }
+        }
+        activeUserFilter.add(changed.stream()
+                .filter(subscription -> subscription.getStatus() == Status.ACTIVE)
+                .map(Subscription::getUserId)
+                .toList());
+        nearCache.invalidate(written);
+        invalidateByUserIds(notServable);
+    }
+
+    private boolean setIfNotNewer(String cacheKey, Subscription subscription) {
+        Long result = redisTemplate.execute(
+                VERSION_GUARDED_SET,
+                RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class),
+                List.of(cacheKey),
+                valueSerializer.serialize(subscription),
+                versionArgument(subscription),
+                ascii(storedTtlFor(subscription).toMillis()));
+        return result != null && result == 1L;
+    }
+
+    private static byte[] versionArgument(Subscription subscription) {
+        return ascii(subscription.getVersion() != null ? subscription.getVersion() : -1L);
+    }
+
+    private Duration storedTtlFor(Subscription subscription) {
+        Duration ttl = ttlFor(subscription);
+        return refreshEnabled ? ttl.plus(staleBound) : ttl;
+    }
+
+    /**
+     * Keeps the entry until the end of its expiration day, when the renewal replaces it, bounded by
+     * {@code subscription.cache.min-ttl} and {@code subscription.cache.max-ttl}.
+     */
+    Duration ttlFor(Subscription subscription) {
+        if (isNoActiveSubscription(subscription)) {
+            return negativeCacheTtl;
+        }
+        if (subscription.getExpirationDate() == null) {
+            return minCacheTtl;
+        }
+        Duration untilExpiration = Duration.between(
+                LocalDateTime.now(), subscription.getExpirationDate().plusDays(1).atStartOfDay());
+        if (untilExpiration.compareTo(minCacheTtl) < 0) {
+            return minCacheTtl;
+        }
+        return untilExpiration.compareTo(maxCacheTtl) > 0 ? maxCacheTtl : untilExpiration;
+    }
+
+    private static byte[] ascii(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * True for the {@link #NO_ACTIVE_SUBSCRIPTION} marker and for tombstones of subscriptions that left ACTIVE.
+     */
+    static boolean isNoActiveSubscription(Subscription cached) {
+        return cached.getId() == null || cached.getStatus() != Status.ACTIVE;
+    }
+
+    private Optional<Subscription> fromCache(String layer, Subscription cached) {
+        if (isNoActiveSubscription(cached)) {
+            metrics.incrementCacheRequest(layer, RESULT_NEGATIVE_HIT);
+            return Optional.empty();
+        }
+        metrics.incrementCacheRequest(layer, RESULT_HIT);
+        return Optional.of(cached);
     }
 
     public void invalidateByUserId(UUID userId) {
+        nearCache.invalidate(List.of(userId));
         String cacheKey = CACHE_KEY_PREFIX + userId;
         try {
             redisTemplate.delete(cacheKey);
@@ -59,6 +657,19 @@ public class SubscriptionCacheService {
         }
     }
 
+    public void invalidateByUserIds(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        nearCache.invalidate(userIds);
+        try {
+            redisTemplate.delete(userIds.stream().map(userId -> CACHE_KEY_PREFIX + userId).toList());
+            log.debug("Cache invalidated for {} users", userIds.size());
+        } catch (Exception e) {
+            log.error("Error invalidating cache for {} users", userIds.size(), e);
+        }
+    }
+
     public void invalidateBySubscriptionId(UUID subscriptionId) {
         subscriptionRepository.findById(subscriptionId)
                 .ifPresent(subscription -> invalidateByUserId(subscription.getUserId()));
@@ -0,0 +1,219 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Loads the subscriptions most likely to be read into Redis, enabled with
+ * {@code subscription.cache.warm-up.enabled=true}. Candidates are the users most recently looked up
+ * (see {@link SubscriptionAccessTracker}) and the ACTIVE subscriptions expiring within
+ * {@code expiring-within-days}. Writes are pipelined in chunks, go through the cache's version guard and
+ * are paced at {@code max-subscriptions-per-second}.
+ * <p>
+ * Runs when the application is ready, before it reports ready to traffic, unless another instance warmed
+ * the cache within {@code min-interval}. Renewals are spread over the day's fifteen-minute billing slots, so
+ * {@code CacheWarmUpJob} additionally warms, shortly before each slot's renewal run, the subscriptions that
+ * run is about to request (see {@link #warmUpSlot}). Only one instance warms at a time.
+ */
+@Slf4j
+@Component
+public class SubscriptionCacheWarmer {
+
+    private static final String LOCK_KEY = "subscription:cache:warm-up:lock";
+    private static final String LAST_RUN_KEY = "subscription:cache:warm-up:last-run";
+    private static final int CHUNK_SIZE = 500;
+    private static final Duration PERMIT_TIMEOUT = Duration.ofSeconds(5);
+    private static final String SOURCE_RECENT_ACCESS = "recent_access";
+    private static final String SOURCE_EXPIRING = "expiring";
+    private static final String SOURCE_DUE_IN_SLOT = "due_in_slot";
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionCacheService cacheService;
+    private final SubscriptionAccessTracker accessTracker;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedissonClient redissonClient;
+    private final SubscriptionMetrics metrics;
+    private final boolean enabled;
+    private final int recentUsers;
+    private final int expiringWithinDays;
+    private final int maxSubscriptionsPerSecond;
+    private final Duration minInterval;
+
+    public SubscriptionCacheWarmer(SubscriptionRepository subscriptionRepository,
+                                   SubscriptionCacheService cacheService,
+                                   SubscriptionAccessTracker accessTracker,
+                                   StringRedisTemplate stringRedisTemplate,
+                                   RedissonClient redissonClient,
+                                   SubscriptionMetrics metrics,
+                                   @Value("${subscription.cache.warm-up.enabled:false}") boolean enabled,
+                                   @Value("${subscription.cache.warm-up.recent-users:50000}") int recentUsers,
+                                   @Value("${subscription.cache.warm-up.expiring-within-days:3}") int expiringWithinDays,
+                                   @Value("${subscription.cache.warm-up.max-subscriptions-per-second:5000}") int maxSubscriptionsPerSecond,
+                                   @Value("${subscription.cache.warm-up.min-interval:10m}") Duration minInterval) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.cacheService = cacheService;
+        this.accessTracker = accessTracker;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redissonClient = redissonClient;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.recentUsers = recentUsers;
+        this.expiringWithinDays = expiringWithinDays;
+        this.maxSubscriptionsPerSecond = maxSubscriptionsPerSecond;
+        this.minInterval = minInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(LAST_RUN_KEY))) {
+                log.info("Subscription cache was warmed less than {} ago, skipping startup warm-up", minInterval);
+                return;
+            }
+            warmUp();
+        } catch (Exception e) {
+            log.error("Error warming subscription cache on startup", e);
+        }
+    }
+
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        if (!lock.tryLock()) {
+            log.info("Subscription cache warm-up already running on another instance");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            int chunkSize = chunkSize();
+            RateLimiter rateLimiter = rateLimiter();
+
+            long recent = warmRecentlyAccessed(rateLimiter, chunkSize);
+            long expiring = warmExpiring(rateLimiter, chunkSize);
+            stringRedisTemplate.opsForValue().set(LAST_RUN_KEY, Instant.now().toString(), minInterval);
+
+            log.info("Subscription cache warmed with {} recently accessed users and {} expiring subscriptions in {} ms",
+                    recent, expiring, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Caches the ACTIVE subscriptions due for renewal in {@code billingSlot} of {@code today}, the ones its
+     * renewal run will request, partition by partition.
+     */
+    public void warmUpSlot(LocalDate today, int billingSlot) {
+        if (!enabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        if (!lock.tryLock()) {
+            log.info("Subscription cache warm-up already running on another instance");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            int chunkSize = chunkSize();
+            RateLimiter rateLimiter = rateLimiter();
+            long warmed = 0;
+            for (int partition = 0; partition < Subscription.PARTITIONS; partition++) {
+                try (Stream<Subscription> due = subscriptionRepository
+                        .streamDueForRenewal(today, billingSlot, partition, chunkSize)) {
+                    warmed += warmChunks(due, rateLimiter, chunkSize);
+                }
+            }
+            metrics.incrementCacheWarmed(SOURCE_DUE_IN_SLOT, warmed);
+
+            log.info("Subscription cache warmed with {} subscriptions due in {} slot {} in {} ms",
+                    warmed, today, billingSlot, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int chunkSize() {
+        return Math.min(CHUNK_SIZE, maxSubscriptionsPerSecond);
+    }
+
+    private RateLimiter rateLimiter() {
+        return RateLimiter.of("subscription-cache-warm-up", RateLimiterConfig.custom()
+                .limitForPeriod(maxSubscriptionsPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(PERMIT_TIMEOUT)
+                .build());
+    }
+
+    /**
+     * Caches the recently accessed users' current state, absences included.
+     */
+    private long warmRecentlyAccessed(RateLimiter rateLimiter, int chunkSize) {
+        List<UUID> userIds = accessTracker.recentlyAccessed(recentUsers);
+        for (int from = 0; from < userIds.size(); from += chunkSize) {
+            List<UUID> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+            RateLimiter.waitForPermission(rateLimiter, chunk.size());
+            cacheService.warm(chunk, subscriptionRepository.findByUserIdInAndStatus(chunk, Status.ACTIVE));
+        }
+        metrics.incrementCacheWarmed(SOURCE_RECENT_ACCESS, userIds.size());
+        return userIds.size();
+    }
+
+    private long warmExpiring(RateLimiter rateLimiter, int chunkSize) {
+        LocalDate today = LocalDate.now();
+        long warmed;
+        try (Stream<Subscription> expiring = subscriptionRepository
+                .streamActiveExpiringBetween(today, today.plusDays(expiringWithinDays), chunkSize)) {
+            warmed = warmChunks(expiring, rateLimiter, chunkSize);
+        }
+        metrics.incrementCacheWarmed(SOURCE_EXPIRING, warmed);
+        return warmed;
+    }
+
+    private long warmChunks(Stream<Subscription> subscriptions, RateLimiter rateLimiter, int chunkSize) {
+        long warmed = 0;
+        Iterator<Subscription> iterator = subscriptions.iterator();
+        List<Subscription> chunk = new ArrayList<>(chunkSize);
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                RateLimiter.waitForPermission(rateLimiter, chunk.size());
+                cacheService.warm(chunk.stream().map(Subscription::getUserId).toList(), chunk);
+                warmed += chunk.size();
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        return warmed;
+    }
+}
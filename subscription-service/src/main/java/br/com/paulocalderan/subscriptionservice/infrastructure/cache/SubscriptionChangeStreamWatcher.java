@@ -0,0 +1,265 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the subscription cache in line with the committed writes of the {@code subscriptions} collection,
+ * whoever made them, enabled with {@code subscription.cache.change-stream.enabled=true}. One instance at a
+ * time holds the watcher lock and applies the stream; the others wait to take over.
+ * <p>
+ * Events are coalesced per user for {@code subscription.cache.change-stream.coalesce-window}, or until
+ * {@code max-batch-size} users changed, and applied through {@link SubscriptionCacheService#applyCommitted},
+ * whose version guard makes replayed events harmless. The resume token of the last applied event is stored
+ * in Redis so a restart or a new leader resumes where the previous one stopped. Deletes are only seen when
+ * the collection has {@code changeStreamPreAndPostImages} enabled; otherwise the entry lives until its TTL.
+ */
+@Slf4j
+@Component
+public class SubscriptionChangeStreamWatcher implements SmartLifecycle {
+
+    private static final String RESUME_TOKEN_KEY = "subscription:cache:change-stream:resume-token";
+    private static final String LOCK_KEY = "subscription:cache:change-stream:lock";
+    private static final Duration LEADER_RETRY_INTERVAL = Duration.ofSeconds(5);
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final SubscriptionCacheService cacheService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedissonClient redissonClient;
+    private final SubscriptionMetrics metrics;
+    private final boolean enabled;
+    private final Duration coalesceWindow;
+    private final int maxBatchSize;
+
+    private volatile boolean running;
+    private volatile double lagSeconds;
+    private Thread watcherThread;
+
+    public SubscriptionChangeStreamWatcher(MongoTemplate mongoTemplate,
+                                           SubscriptionCacheService cacheService,
+                                           StringRedisTemplate stringRedisTemplate,
+                                           RedissonClient redissonClient,
+                                           SubscriptionMetrics metrics,
+                                           @Value("${subscription.cache.change-stream.enabled:false}") boolean enabled,
+                                           @Value("${subscription.cache.change-stream.coalesce-window:100ms}") Duration coalesceWindow,
+                                           @Value("${subscription.cache.change-stream.max-batch-size:500}") int maxBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.cacheService = cacheService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redissonClient = redissonClient;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.coalesceWindow = coalesceWindow;
+        this.maxBatchSize = maxBatchSize;
+
+        metrics.registerGauge("subscription_cache_change_stream_lag_seconds",
+                "Age of the last change stream event applied to the cache, zero when the stream is idle",
+                () -> lagSeconds);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        watcherThread = Thread.ofPlatform()
+                .name("subscription-change-stream")
+                .daemon()
+                .start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        while (running) {
+            try {
+                // no explicit lease: the Redisson watchdog keeps the lock while this instance is alive
+                if (lock.tryLock()) {
+                    try {
+                        log.info("Acquired change stream watcher lock, watching subscriptions");
+                        watch();
+                    } finally {
+                        if (lock.isHeldByCurrentThread()) {
+                            lock.unlock();
+                        }
+                    }
+                } else {
+                    Thread.sleep(LEADER_RETRY_INTERVAL.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Subscription change stream failed, retrying in {}", LEADER_RETRY_INTERVAL, e);
+                sleepQuietly(LEADER_RETRY_INTERVAL);
+            }
+        }
+    }
+
+    private void watch() {
+        BsonDocument resumeToken = loadResumeToken();
+        try {
+            watchFrom(resumeToken);
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != CHANGE_STREAM_HISTORY_LOST || resumeToken == null) {
+                throw e;
+            }
+            log.warn("Change stream resume token is no longer in the oplog, resuming from now. "
+                    + "Entries changed meanwhile are corrected by their TTL");
+            stringRedisTemplate.delete(RESUME_TOKEN_KEY);
+            watchFrom(null);
+        }
+    }
+
+    private void watchFrom(BsonDocument resumeToken) {
+        ChangeStreamIterable<Document> stream = mongoTemplate
+                .getCollection(mongoTemplate.getCollectionName(Subscription.class))
+                .watch(List.of(Aggregates.match(Filters.in("operationType",
+                        OperationType.INSERT.getValue(), OperationType.UPDATE.getValue(),
+                        OperationType.REPLACE.getValue(), OperationType.DELETE.getValue()))))
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+                .maxAwaitTime(coalesceWindow.toMillis(), TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            Map<UUID, Subscription> changed = new LinkedHashMap<>();
+            Set<UUID> deleted = new LinkedHashSet<>();
+            long events = 0;
+            long windowStart = System.nanoTime();
+            ChangeStreamDocument<Document> last = null;
+
+            while (running) {
+                ChangeStreamDocument<Document> event = cursor.tryNext();
+                if (event != null) {
+                    coalesce(event, changed, deleted);
+                    last = event;
+                    events++;
+                }
+
+                boolean windowElapsed = System.nanoTime() - windowStart >= coalesceWindow.toNanos();
+                if (last != null && (event == null || windowElapsed || changed.size() + deleted.size() >= maxBatchSize)) {
+                    flush(changed, deleted, events, last);
+                    changed.clear();
+                    deleted.clear();
+                    events = 0;
+                    last = null;
+                    windowStart = System.nanoTime();
+                } else if (event == null) {
+                    lagSeconds = 0;
+                    windowStart = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    private void coalesce(ChangeStreamDocument<Document> event, Map<UUID, Subscription> changed, Set<UUID> deleted) {
+        if (event.getOperationType() == OperationType.DELETE) {
+            Document before = event.getFullDocumentBeforeChange();
+            if (before == null) {
+                log.debug("Subscription {} deleted without a pre-image, cache entry expires by TTL", event.getDocumentKey());
+                return;
+            }
+            UUID userId = read(before).getUserId();
+            changed.remove(userId);
+            deleted.add(userId);
+            return;
+        }
+
+        Document document = event.getFullDocument();
+        if (document == null) {
+            // updated and then deleted before the lookup; the delete event follows
+            return;
+        }
+        Subscription subscription = read(document);
+        deleted.remove(subscription.getUserId());
+        changed.merge(subscription.getUserId(), subscription, SubscriptionChangeStreamWatcher::newer);
+    }
+
+    private static Subscription newer(Subscription current, Subscription candidate) {
+        if (Objects.equals(current.getId(), candidate.getId())
+                && current.getVersion() != null && candidate.getVersion() != null
+                && current.getVersion() > candidate.getVersion()) {
+            return current;
+        }
+        return candidate;
+    }
+
+    private void flush(Map<UUID, Subscription> changed, Set<UUID> deleted, long events,
+                       ChangeStreamDocument<Document> last) {
+        cacheService.applyCommitted(List.copyOf(changed.values()));
+        cacheService.invalidateByUserIds(List.copyOf(deleted));
+        stringRedisTemplate.opsForValue().set(RESUME_TOKEN_KEY, last.getResumeToken().toJson());
+
+        BsonTimestamp clusterTime = last.getClusterTime();
+        if (clusterTime != null) {
+            lagSeconds = Math.max(0, Instant.now().getEpochSecond() - clusterTime.getTime());
+        }
+        metrics.incrementChangeStreamEvents(events);
+        log.debug("Applied {} change stream events to the cache for {} users", events, changed.size() + deleted.size());
+    }
+
+    private Subscription read(Document document) {
+        return mongoTemplate.getConverter().read(Subscription.class, document);
+    }
+
+    private BsonDocument loadResumeToken() {
+        String token = stringRedisTemplate.opsForValue().get(RESUME_TOKEN_KEY);
+        return token != null ? BsonDocument.parse(token) : null;
+    }
+
+    private static void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Optional in-process cache in front of Redis, enabled with {@code subscription.cache.near.enabled=true}.
+ * Bounded by size and TTL with Caffeine's W-TinyLFU eviction. Invalidations are broadcast on a Redis
+ * pub/sub channel so every instance drops its copy; the TTL bounds staleness if a message is lost.
+ */
+@Slf4j
+@Component
+public class SubscriptionNearCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "subscription:cache:invalidation";
+    private static final String ID_SEPARATOR = ",";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final Cache<UUID, Subscription> cache;
+
+    public SubscriptionNearCache(StringRedisTemplate stringRedisTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${subscription.cache.near.enabled:false}") boolean enabled,
+                                 @Value("${subscription.cache.near.maximum-size:100000}") long maximumSize,
+                                 @Value("${subscription.cache.near.ttl:30s}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "subscription-near-cache");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Subscription getIfPresent(UUID userId) {
+        return enabled ? cache.getIfPresent(userId) : null;
+    }
+
+    public void put(UUID userId, Subscription subscription) {
+        if (enabled) {
+            cache.put(userId, subscription);
+        }
+    }
+
+    public void invalidate(Collection<UUID> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(userIds);
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                    userIds.stream().map(UUID::toString).collect(Collectors.joining(ID_SEPARATOR)));
+        } catch (Exception e) {
+            log.error("Error broadcasting near cache invalidation for {} users", userIds.size(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!enabled) {
+            return;
+        }
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<UUID> userIds = Arrays.stream(body.split(ID_SEPARATOR))
+                .map(UUID::fromString)
+                .toList();
+        cache.invalidateAll(userIds);
+        log.debug("Near cache invalidated for {} users by broadcast", userIds.size());
+    }
+}
@@ -0,0 +1,135 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of cached subscriptions. Layout of format 1:
+ * <pre>
+ * format:byte presence:byte [id:long,long] [userId:long,long] [plan:byte] [startDate:int]
+ * [expirationDate:int] [status:byte] [renewalAttempts:int] [version:long]
+ * </pre>
+ * Each optional field is written only when its bit is set in {@code presence}. UUIDs are stored as their
+ * two halves, dates as epoch days and enums as ordinals, so new {@link Plan} and {@link Status} constants
+ * must be appended, never reordered. Values written by the previous JSON serializer (starting with
+ * {@code '{'}) are still read, so existing entries stay valid until they expire.
+ */
+public class SubscriptionRedisSerializer implements RedisSerializer<Subscription> {
+
+    static final byte FORMAT_V1 = 1;
+    private static final byte JSON_START = '{';
+    private static final int MAX_SIZE = 2 + 16 + 16 + 1 + 4 + 4 + 1 + 4 + 8;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_USER_ID = 1 << 1;
+    private static final int HAS_PLAN = 1 << 2;
+    private static final int HAS_START_DATE = 1 << 3;
+    private static final int HAS_EXPIRATION_DATE = 1 << 4;
+    private static final int HAS_STATUS = 1 << 5;
+    private static final int HAS_RENEWAL_ATTEMPTS = 1 << 6;
+    private static final int HAS_VERSION = 1 << 7;
+
+    private static final Plan[] PLANS = Plan.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final GenericJackson2JsonRedisSerializer legacySerializer = new GenericJackson2JsonRedisSerializer();
+
+    @Override
+    public byte[] serialize(Subscription subscription) throws SerializationException {
+        if (subscription == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+        buffer.put(FORMAT_V1);
+        int presencePosition = buffer.position();
+        buffer.put((byte) 0);
+        int presence = 0;
+
+        if (subscription.getId() != null) {
+            presence |= HAS_ID;
+            putUuid(buffer, subscription.getId());
+        }
+        if (subscription.getUserId() != null) {
+            presence |= HAS_USER_ID;
+            putUuid(buffer, subscription.getUserId());
+        }
+        if (subscription.getPlan() != null) {
+            presence |= HAS_PLAN;
+            buffer.put((byte) subscription.getPlan().ordinal());
+        }
+        if (subscription.getStartDate() != null) {
+            presence |= HAS_START_DATE;
+            buffer.putInt((int) subscription.getStartDate().toEpochDay());
+        }
+        if (subscription.getExpirationDate() != null) {
+            presence |= HAS_EXPIRATION_DATE;
+            buffer.putInt((int) subscription.getExpirationDate().toEpochDay());
+        }
+        if (subscription.getStatus() != null) {
+            presence |= HAS_STATUS;
+            buffer.put((byte) subscription.getStatus().ordinal());
+        }
+        if (subscription.getRenewalAttempts() != null) {
+            presence |= HAS_RENEWAL_ATTEMPTS;
+            buffer.putInt(subscription.getRenewalAttempts());
+        }
+        if (subscription.getVersion() != null) {
+            presence |= HAS_VERSION;
+            buffer.putLong(subscription.getVersion());
+        }
+
+        buffer.put(presencePosition, (byte) presence);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public Subscription deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JSON_START) {
+            return (Subscription) legacySerializer.deserialize(bytes);
+        }
+        if (bytes[0] != FORMAT_V1) {
+            throw new SerializationException("Unknown subscription cache format: " + bytes[0]);
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            int presence = buffer.get() & 0xFF;
+            Subscription subscription = new Subscription();
+            subscription.setId((presence & HAS_ID) != 0 ? getUuid(buffer) : null);
+            subscription.setUserId((presence & HAS_USER_ID) != 0 ? getUuid(buffer) : null);
+            subscription.setPlan((presence & HAS_PLAN) != 0 ? PLANS[buffer.get()] : null);
+            subscription.setStartDate((presence & HAS_START_DATE) != 0 ? LocalDate.ofEpochDay(buffer.getInt()) : null);
+            subscription.setExpirationDate((presence & HAS_EXPIRATION_DATE) != 0 ? LocalDate.ofEpochDay(buffer.getInt()) : null);
+            subscription.setStatus((presence & HAS_STATUS) != 0 ? STATUSES[buffer.get()] : null);
+            subscription.setRenewalAttempts((presence & HAS_RENEWAL_ATTEMPTS) != 0 ? buffer.getInt() : null);
+            subscription.setVersion((presence & HAS_VERSION) != 0 ? buffer.getLong() : null);
+            return subscription;
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Corrupted subscription cache entry", e);
+        }
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of user ids. Bits are set with double hashing over the two halves of the UUID,
+ * each mixed with the MurmurHash3 finalizer, so concurrent {@link #put} and {@link #mightContain} calls
+ * need no synchronization. Elements cannot be removed; the filter is replaced when it is rebuilt.
+ */
+final class UserIdBloomFilter {
+
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+
+    UserIdBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long insertions = Math.max(1, expectedInsertions);
+        double optimalBits = -insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int wordCount = (int) Math.min(MAX_WORDS, Math.max(1, (long) Math.ceil(optimalBits / Long.SIZE)));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount * Long.SIZE;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / insertions * Math.log(2)));
+    }
+
+    void put(UUID userId) {
+        long hash1 = mix(userId.getMostSignificantBits());
+        long hash2 = mix(userId.getLeastSignificantBits());
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitSize;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+        }
+    }
+
+    boolean mightContain(UUID userId) {
+        long hash1 = mix(userId.getMostSignificantBits());
+        long hash2 = mix(userId.getLeastSignificantBits());
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitSize;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bitSize / Byte.SIZE;
+    }
+
+    /**
+     * Current false-positive probability, estimated from the fraction of bits set.
+     */
+    double expectedFalsePositiveRate() {
+        long setBits = 0;
+        for (int i = 0; i < words.length(); i++) {
+            setBits += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) setBits / bitSize, hashFunctions);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -7,10 +7,12 @@ import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.util.backoff.ExponentialBackOff;
@@ -24,6 +26,12 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${subscription.kafka.payment-events.max-poll-records:500}")
+    private int paymentEventsMaxPollRecords;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -33,6 +41,8 @@ public class KafkaConfig {
         configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
@@ -43,6 +53,54 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
+        return new DefaultKafkaConsumerFactory<>(baseConsumerProps());
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        configureListenerExecutor(factory.getContainerProperties());
+        factory.setCommonErrorHandler(paymentEventsErrorHandler());
+        return factory;
+    }
+
+    /**
+     * Consumer factory for batch listeners. Values are deserialized through an {@link ErrorHandlingDeserializer}
+     * so an undeserializable record reaches the listener as a {@code null} value instead of failing the whole poll.
+     */
+    @Bean
+    public ConsumerFactory<String, Object> batchConsumerFactory() {
+        Map<String, Object> configProps = baseConsumerProps();
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, paymentEventsMaxPollRecords);
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        configureListenerExecutor(factory.getContainerProperties());
+        factory.setCommonErrorHandler(paymentEventsErrorHandler());
+        return factory;
+    }
+
+    /**
+     * With virtual threads enabled, each listener container polls and runs its listener on a virtual thread,
+     * so the blocking Mongo, Redis and Kafka calls in the consumers don't hold a platform thread.
+     */
+    private void configureListenerExecutor(ContainerProperties containerProperties) {
+        if (virtualThreads) {
+            containerProperties.setListenerTaskExecutor(new VirtualThreadTaskExecutor("kafka-listener-"));
+        }
+    }
+
+    private Map<String, Object> baseConsumerProps() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "subscription-service-group");
@@ -52,15 +110,10 @@ public class KafkaConfig {
         configProps.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
         configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.PaymentEvent");
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        return configProps;
     }
 
-    @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
-        
+    private DefaultErrorHandler paymentEventsErrorHandler() {
         ExponentialBackOff backOff = new ExponentialBackOff();
         backOff.setInitialInterval(1000);
         backOff.setMultiplier(2.0);
@@ -79,8 +132,7 @@ public class KafkaConfig {
                             deliveryAttempt, record, ex.getMessage());
         });
         
-        factory.setCommonErrorHandler(errorHandler);
-        return factory;
+        return errorHandler;
     }
 }
 
@@ -0,0 +1,23 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+public class MongoConfig {
+
+    /**
+     * Makes {@code @Transactional} service methods real MongoDB transactions, so a state change and its
+     * outbox event are committed together. Requires MongoDB running as a replica set. Only write methods are
+     * annotated: reads run without a session, since a transaction would only add round trips to them.
+     */
+    @Bean
+    @ConditionalOnMissingBean(PlatformTransactionManager.class)
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
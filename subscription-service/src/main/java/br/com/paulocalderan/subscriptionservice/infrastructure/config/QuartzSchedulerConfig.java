@@ -1,14 +1,21 @@
 package br.com.paulocalderan.subscriptionservice.infrastructure.config;
 
+import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.ActiveUserFilterRebuildJob;
+import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.CacheWarmUpJob;
+import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.ExpiryIndexReconciliationJob;
+import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.OutboxRelayJob;
 import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.ProcessStaleProcessingSubscriptionsJob;
 import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.RenewalJob;
+import br.com.paulocalderan.subscriptionservice.infrastructure.scheduler.SubscriptionAccessFlushJob;
 import org.quartz.*;
 import org.quartz.spi.TriggerFiredBundle;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 import org.springframework.scheduling.quartz.SpringBeanJobFactory;
 
@@ -16,10 +23,18 @@ import org.springframework.scheduling.quartz.SpringBeanJobFactory;
 @Configuration
 public class QuartzSchedulerConfig extends SpringBeanJobFactory {
 
+    /**
+     * Jobs that may run at once, the size of Quartz's default thread pool.
+     */
+    private static final int JOB_CONCURRENCY = 10;
+
     private final ApplicationContext applicationContext;
+    private final boolean virtualThreads;
 
-    public QuartzSchedulerConfig(ApplicationContext applicationContext) {
+    public QuartzSchedulerConfig(ApplicationContext applicationContext,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.applicationContext = applicationContext;
+        this.virtualThreads = virtualThreads;
     }
 
     @Override
@@ -34,9 +49,23 @@ public class QuartzSchedulerConfig extends SpringBeanJobFactory {
         SchedulerFactoryBean factory = new SchedulerFactoryBean();
         factory.setJobFactory(this);
         factory.setAutoStartup(true);
+        if (virtualThreads) {
+            factory.setTaskExecutor(jobExecutor());
+        }
         return factory;
     }
 
+    /**
+     * Runs each fired job on a new virtual thread in place of Quartz's worker pool. The concurrency limit
+     * keeps the pool's bound: the scheduler thread waits for a free slot as it would for a free worker.
+     */
+    private SimpleAsyncTaskExecutor jobExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("quartz-job-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(JOB_CONCURRENCY);
+        return executor;
+    }
+
     @Bean
     @DependsOn("schedulerFactoryBean")
     public Scheduler scheduler(SchedulerFactoryBean schedulerFactoryBean) throws Exception {
@@ -51,8 +80,8 @@ public class QuartzSchedulerConfig extends SpringBeanJobFactory {
         Trigger renewalTrigger = TriggerBuilder.newTrigger()
                 .forJob(renewalJobDetail)
                 .withIdentity("renewalTrigger")
-                .withDescription("Trigger to execute renewal daily at 00:00")
-                .withSchedule(CronScheduleBuilder.cronSchedule("0 0 0 * * ?"))
+                .withDescription("Trigger to execute the renewal of each fifteen-minute billing slot")
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 0/15 * * * ?"))
                 .build();
 
         if (!scheduler.checkExists(renewalJobDetail.getKey())) {
@@ -68,14 +97,101 @@ public class QuartzSchedulerConfig extends SpringBeanJobFactory {
         Trigger staleProcessingTrigger = TriggerBuilder.newTrigger()
                 .forJob(staleProcessingJobDetail)
                 .withIdentity("staleProcessingTrigger")
-                .withDescription("Trigger to execute stale processing cleanup every 8 hours")
+                .withDescription("Trigger to execute the stale processing safety-net scan daily at 03:00")
                 .startNow()
-                .withSchedule(CronScheduleBuilder.cronSchedule("0 0 */8 * * ?"))
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 0 3 * * ?"))
                 .build();
 
         if (!scheduler.checkExists(staleProcessingJobDetail.getKey())) {
             scheduler.scheduleJob(staleProcessingJobDetail, staleProcessingTrigger);
         }
+
+        JobDetail outboxRelayJobDetail = JobBuilder.newJob(OutboxRelayJob.class)
+                .withIdentity("outboxRelayJob")
+                .withDescription("Job to publish subscription outbox events to Kafka")
+                .storeDurably()
+                .build();
+
+        Trigger outboxRelayTrigger = TriggerBuilder.newTrigger()
+                .forJob(outboxRelayJobDetail)
+                .withIdentity("outboxRelayTrigger")
+                .withDescription("Trigger to drain the subscription outbox every second")
+                .startNow()
+                .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever(1)
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+
+        if (!scheduler.checkExists(outboxRelayJobDetail.getKey())) {
+            scheduler.scheduleJob(outboxRelayJobDetail, outboxRelayTrigger);
+        }
+
+        JobDetail activeUserFilterJobDetail = JobBuilder.newJob(ActiveUserFilterRebuildJob.class)
+                .withIdentity("activeUserFilterRebuildJob")
+                .withDescription("Job to rebuild this instance's Bloom filter of users with an active subscription")
+                .storeDurably()
+                .build();
+
+        Trigger activeUserFilterTrigger = TriggerBuilder.newTrigger()
+                .forJob(activeUserFilterJobDetail)
+                .withIdentity("activeUserFilterRebuildTrigger")
+                .withDescription("Trigger to rebuild the active user filter every hour at minute 15")
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 15 * * * ?"))
+                .build();
+
+        if (!scheduler.checkExists(activeUserFilterJobDetail.getKey())) {
+            scheduler.scheduleJob(activeUserFilterJobDetail, activeUserFilterTrigger);
+        }
+
+        JobDetail cacheWarmUpJobDetail = JobBuilder.newJob(CacheWarmUpJob.class)
+                .withIdentity("cacheWarmUpJob")
+                .withDescription("Job to warm the subscription cache ahead of each billing slot's renewal")
+                .storeDurably()
+                .build();
+
+        Trigger cacheWarmUpTrigger = TriggerBuilder.newTrigger()
+                .forJob(cacheWarmUpJobDetail)
+                .withIdentity("cacheWarmUpTrigger")
+                .withDescription("Trigger to warm the cache five minutes before each fifteen-minute billing slot")
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 10/15 * * * ?"))
+                .build();
+
+        if (!scheduler.checkExists(cacheWarmUpJobDetail.getKey())) {
+            scheduler.scheduleJob(cacheWarmUpJobDetail, cacheWarmUpTrigger);
+        }
+
+        JobDetail accessFlushJobDetail = JobBuilder.newJob(SubscriptionAccessFlushJob.class)
+                .withIdentity("subscriptionAccessFlushJob")
+                .withDescription("Job to share this instance's most accessed users for cache warm-up")
+                .storeDurably()
+                .build();
+
+        Trigger accessFlushTrigger = TriggerBuilder.newTrigger()
+                .forJob(accessFlushJobDetail)
+                .withIdentity("subscriptionAccessFlushTrigger")
+                .withDescription("Trigger to flush the access tracker every 5 minutes")
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 */5 * * * ?"))
+                .build();
+
+        if (!scheduler.checkExists(accessFlushJobDetail.getKey())) {
+            scheduler.scheduleJob(accessFlushJobDetail, accessFlushTrigger);
+        }
+
+        JobDetail expiryIndexJobDetail = JobBuilder.newJob(ExpiryIndexReconciliationJob.class)
+                .withIdentity("expiryIndexReconciliationJob")
+                .withDescription("Job to add ACTIVE subscriptions missing from the expiry index, or rebuild it")
+                .storeDurably()
+                .build();
+
+        Trigger expiryIndexTrigger = TriggerBuilder.newTrigger()
+                .forJob(expiryIndexJobDetail)
+                .withIdentity("expiryIndexReconciliationTrigger")
+                .withDescription("Trigger to reconcile the expiry index every hour at minute 40")
+                .withSchedule(CronScheduleBuilder.cronSchedule("0 40 * * * ?"))
+                .build();
+
+        if (!scheduler.checkExists(expiryIndexJobDetail.getKey())) {
+            scheduler.scheduleJob(expiryIndexJobDetail, expiryIndexTrigger);
+        }
         
         return scheduler;
     }
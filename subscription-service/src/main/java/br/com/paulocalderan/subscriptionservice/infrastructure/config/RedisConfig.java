@@ -1,10 +1,15 @@
 package br.com.paulocalderan.subscriptionservice.infrastructure.config;
 
 import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.infrastructure.cache.ActiveUserFilter;
+import br.com.paulocalderan.subscriptionservice.infrastructure.cache.SubscriptionNearCache;
+import br.com.paulocalderan.subscriptionservice.infrastructure.cache.SubscriptionRedisSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -16,11 +21,21 @@ public class RedisConfig {
         RedisTemplate<String, Subscription> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(new SubscriptionRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
         template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
         template.afterPropertiesSet();
         return template;
     }
-}
 
+    @Bean
+    public RedisMessageListenerContainer subscriptionCacheListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            SubscriptionNearCache nearCache,
+                                                                            ActiveUserFilter activeUserFilter) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nearCache, new ChannelTopic(SubscriptionNearCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(activeUserFilter, new ChannelTopic(ActiveUserFilter.ACTIVATION_CHANNEL));
+        return container;
+    }
+}
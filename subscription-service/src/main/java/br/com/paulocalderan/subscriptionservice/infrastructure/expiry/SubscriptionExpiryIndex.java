@@ -0,0 +1,333 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.expiry;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Redis index of when each ACTIVE subscription is due for renewal. One sorted set per partition
+ * ({@code subscription:expiry:<partition>}) holds subscription ids scored by
+ * {@code expirationDate epoch day * BILLING_SLOTS + billingSlot}, so the subscriptions due up to a slot are a
+ * {@code ZRANGEBYSCORE} prefix and the renewal finds them without scanning MongoDB. The renewal only reads it
+ * with {@code subscription.renewal.expiry-index.enabled=true}, and only while it is {@link #isReady() ready}.
+ * <p>
+ * Maintained after commit on every transition of an ACTIVE subscription, whether or not the renewal reads it,
+ * so enabling it never starts from a stale index: ACTIVE ones are (re)scored, any other status is removed. A
+ * score may lag behind the document, never run ahead of it, so the renewal re-reads the members it finds and
+ * re-scores those that are not due. A failed update marks the index as not built, sending the renewal back to
+ * MongoDB until the index is rebuilt. Built from MongoDB on startup when missing, rebuilt or
+ * {@link #reconcile() reconciled} periodically, and rebuilt on demand with {@link #rebuild()}.
+ */
+@Slf4j
+@Component
+public class SubscriptionExpiryIndex {
+
+    private static final String KEY_PREFIX = "subscription:expiry:";
+    private static final String BUILT_KEY = "subscription:expiry:built";
+    private static final String REBUILDING_KEY = "subscription:expiry:rebuilding";
+    private static final String REBUILD_LOCK_KEY = "subscription:expiry:rebuild:lock";
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    /**
+     * Marks the index as built only if no update failed since the rebuild started, that is if the rebuild's
+     * token is still in place.
+     */
+    private static final RedisScript<Long> COMPLETE_REBUILD = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('SET', KEYS[2], '1') "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "return 1 "
+                    + "end "
+                    + "return 0",
+            Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SubscriptionRepository subscriptionRepository;
+    private final RedissonClient redissonClient;
+    private final SubscriptionMetrics metrics;
+    private final boolean enabled;
+
+    public SubscriptionExpiryIndex(StringRedisTemplate stringRedisTemplate,
+                                   SubscriptionRepository subscriptionRepository,
+                                   RedissonClient redissonClient,
+                                   SubscriptionMetrics metrics,
+                                   @Value("${subscription.renewal.expiry-index.enabled:false}") boolean enabled) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.subscriptionRepository = subscriptionRepository;
+        this.redissonClient = redissonClient;
+        this.metrics = metrics;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Whether the renewal should find due subscriptions here: enabled, and built with no update failed since.
+     */
+    public boolean isReady() {
+        return enabled && Boolean.TRUE.equals(stringRedisTemplate.hasKey(BUILT_KEY));
+    }
+
+    public static double score(LocalDate day, int billingSlot) {
+        return (double) day.toEpochDay() * Subscription.BILLING_SLOTS + billingSlot;
+    }
+
+    /**
+     * Score of the renewal of an ACTIVE subscription: its expiration date at its billing slot.
+     */
+    public static double score(Subscription subscription) {
+        return score(subscription.getExpirationDate(), billingSlotOf(subscription));
+    }
+
+    /**
+     * Applies the state of committed subscriptions to the index, after the surrounding transaction commits.
+     */
+    public void updateAfterCommit(Collection<Subscription> subscriptions) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        List<Subscription> changed = List.copyOf(subscriptions);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(changed);
+            }
+        });
+    }
+
+    /**
+     * Scores each ACTIVE subscription by its expiration date and billing slot and removes any other, in one
+     * pipeline. On failure the index is marked as not built, so the renewal reads MongoDB until the next
+     * rebuild; if Redis cannot even take that, the next {@link #reconcile()} adds the missing members.
+     */
+    public void apply(Collection<Subscription> subscriptions) {
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Subscription subscription : subscriptions) {
+                    byte[] key = key(subscription.getId());
+                    byte[] member = member(subscription.getId());
+                    if (subscription.getStatus() == Status.ACTIVE && subscription.getExpirationDate() != null) {
+                        connection.zSetCommands().zAdd(key, score(subscription), member, ZAddArgs.empty());
+                    } else {
+                        connection.zSetCommands().zRem(key, member);
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Error updating expiry index for {} subscriptions, marking it as not built",
+                    subscriptions.size(), e);
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        try {
+            stringRedisTemplate.delete(List.of(BUILT_KEY, REBUILDING_KEY));
+        } catch (Exception e) {
+            log.error("Error marking expiry index as not built, the next reconciliation repairs it", e);
+        }
+    }
+
+    /**
+     * Removes ids whose subscription no longer exists.
+     */
+    public void remove(int partition, Collection<UUID> subscriptionIds) {
+        if (subscriptionIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.opsForZSet().remove(KEY_PREFIX + partition,
+                subscriptionIds.stream().map(UUID::toString).toArray());
+    }
+
+    /**
+     * Returns up to {@code limit} ids of partition {@code partition} due on {@code today} up to
+     * {@code billingSlot}, lowest score first.
+     */
+    public List<UUID> findDue(int partition, LocalDate today, int billingSlot, int limit) {
+        Set<String> members = stringRedisTemplate.opsForZSet().rangeByScore(
+                KEY_PREFIX + partition, Double.NEGATIVE_INFINITY, score(today, billingSlot), 0, limit);
+        return members == null ? List.of() : members.stream().map(UUID::fromString).toList();
+    }
+
+    public long countDue(LocalDate today, int billingSlot) {
+        double max = score(today, billingSlot);
+        List<Object> counts = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int partition = 0; partition < Subscription.PARTITIONS; partition++) {
+                connection.zSetCommands().zCount(
+                        (KEY_PREFIX + partition).getBytes(StandardCharsets.UTF_8), Double.NEGATIVE_INFINITY, max);
+            }
+            return null;
+        });
+        return counts.stream().mapToLong(count -> count instanceof Long value ? value : 0).sum();
+    }
+
+    /**
+     * Moves subscriptions whose renewal was requested today to their slot tomorrow, when a failed payment
+     * makes them due again. Only raises existing scores: a member renewed or removed meanwhile is left alone.
+     */
+    public void deferToNextDay(Collection<Subscription> requested, LocalDate today) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Subscription subscription : requested) {
+                connection.zSetCommands().zAdd(key(subscription.getId()),
+                        score(today.plusDays(1), billingSlotOf(subscription)),
+                        member(subscription.getId()), ZAddArgs.empty().ifExists().gt());
+            }
+            return null;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(BUILT_KEY))) {
+                return;
+            }
+            rebuild();
+        } catch (Exception e) {
+            log.error("Error building subscription expiry index on startup", e);
+        }
+    }
+
+    /**
+     * Re-adds every ACTIVE subscription with its current score, partition by partition. Writes in place, so
+     * concurrent updates are never lost; members left over from subscriptions that are no longer ACTIVE are
+     * removed when the renewal reaches them. The index is only marked as built if no update failed while
+     * rebuilding. Returns the number indexed, or -1 when another instance is already rebuilding.
+     */
+    public long rebuild() {
+        RLock lock = redissonClient.getLock(REBUILD_LOCK_KEY);
+        // no explicit lease: the Redisson watchdog keeps the lock while this instance is alive
+        if (!lock.tryLock()) {
+            log.info("Subscription expiry index is being rebuilt by another instance");
+            return -1;
+        }
+        try {
+            String token = UUID.randomUUID().toString();
+            stringRedisTemplate.opsForValue().set(REBUILDING_KEY, token);
+            long indexed = forEachActiveChunk(chunk -> {
+                apply(chunk);
+                return chunk.size();
+            });
+            Long built = stringRedisTemplate.execute(COMPLETE_REBUILD, List.of(REBUILDING_KEY, BUILT_KEY), token);
+            if (!Objects.equals(built, 1L)) {
+                log.warn("Subscription expiry index update failed while rebuilding, leaving it as not built");
+                return indexed;
+            }
+            log.info("Subscription expiry index rebuilt with {} ACTIVE subscriptions", indexed);
+            return indexed;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds every ACTIVE subscription missing from the index, leaving the scores already there alone, or
+     * rebuilds the index when it is not built. Catches the members lost by an update that failed without
+     * being able to mark the index as not built. Returns the number of members added or indexed, or -1 when
+     * another instance is already rebuilding or reconciling.
+     */
+    public long reconcile() {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(BUILT_KEY))) {
+            return rebuild();
+        }
+        RLock lock = redissonClient.getLock(REBUILD_LOCK_KEY);
+        // no explicit lease: the Redisson watchdog keeps the lock while this instance is alive
+        if (!lock.tryLock()) {
+            log.info("Subscription expiry index is being rebuilt by another instance");
+            return -1;
+        }
+        try {
+            long added = forEachActiveChunk(this::addMissing);
+            if (added > 0) {
+                log.warn("Subscription expiry index reconciliation added {} missing ACTIVE subscriptions", added);
+                metrics.incrementExpiryIndexRepaired(added);
+            } else {
+                log.info("Subscription expiry index reconciled, no ACTIVE subscription missing");
+            }
+            return added;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * {@code ZADD NX} of each subscription, in one pipeline. Returns how many were added.
+     */
+    private long addMissing(List<Subscription> chunk) {
+        List<Object> added = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Subscription subscription : chunk) {
+                connection.zSetCommands().zAdd(key(subscription.getId()), score(subscription),
+                        member(subscription.getId()), ZAddArgs.empty().ifNotExists());
+            }
+            return null;
+        });
+        return added.stream().filter(Boolean.TRUE::equals).count();
+    }
+
+    private long forEachActiveChunk(ToLongFunction<List<Subscription>> action) {
+        long total = 0;
+        for (int partition = 0; partition < Subscription.PARTITIONS; partition++) {
+            try (Stream<Subscription> active = subscriptionRepository.streamByStatusAndPartition(
+                    Status.ACTIVE, partition, null, REBUILD_BATCH_SIZE)) {
+                Iterator<Subscription> iterator = active.iterator();
+                List<Subscription> chunk = new ArrayList<>(REBUILD_BATCH_SIZE);
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size() == REBUILD_BATCH_SIZE || !iterator.hasNext()) {
+                        total += action.applyAsLong(chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private static int billingSlotOf(Subscription subscription) {
+        return subscription.getBillingSlot() != null
+                ? subscription.getBillingSlot()
+                : Subscription.billingSlotOf(subscription.getId());
+    }
+
+    private static byte[] key(UUID subscriptionId) {
+        return (KEY_PREFIX + Subscription.partitionOf(subscriptionId)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] member(UUID subscriptionId) {
+        return subscriptionId.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
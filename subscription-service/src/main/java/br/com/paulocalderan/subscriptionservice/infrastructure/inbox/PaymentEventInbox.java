@@ -0,0 +1,54 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.inbox;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Records which payment events were applied, in the {@code processed_payment_events} collection. Checked and
+ * written inside the same transaction as the state change, so a redelivered event is recognised and skipped;
+ * two instances applying the same event at once conflict on the insert and one of them is rolled back.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentEventInbox {
+
+    private final ProcessedPaymentEventRepository processedPaymentEventRepository;
+
+    /**
+     * Those of {@code eventIds} already applied.
+     */
+    public Set<UUID> findProcessed(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+        return processedPaymentEventRepository.findAllById(eventIds).stream()
+                .map(ProcessedPaymentEvent::getId)
+                .collect(Collectors.toSet());
+    }
+
+    public boolean isProcessed(UUID eventId) {
+        return processedPaymentEventRepository.existsById(eventId);
+    }
+
+    /**
+     * Stores the events as applied in one batched insert.
+     */
+    public void markProcessed(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        processedPaymentEventRepository.insert(eventIds.stream()
+                .map(eventId -> new ProcessedPaymentEvent(eventId, now))
+                .toList());
+        log.debug("{} payment events marked as processed", eventIds.size());
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.inbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A payment event already applied to its subscription. Kept long enough to cover Kafka redeliveries and
+ * payment-service retries, then removed by the TTL index.
+ */
+@Document(collection = "processed_payment_events")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedPaymentEvent {
+
+    @Id
+    private UUID id;
+
+    @Indexed(name = "processed_at_ttl", expireAfter = "7d")
+    private Instant processedAt;
+}
@@ -0,0 +1,10 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.inbox;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ProcessedPaymentEventRepository extends MongoRepository<ProcessedPaymentEvent, UUID> {
+}
@@ -0,0 +1,82 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.messaging;
+
+import br.com.paulocalderan.subscriptionservice.application.dto.PaymentBatchResult;
+import br.com.paulocalderan.subscriptionservice.application.service.SubscriptionService;
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.PaymentEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Batch counterpart of {@link PaymentEventConsumer}, enabled with
+ * {@code subscription.kafka.payment-events.batch-enabled=true}. Each poll is applied with one Mongo read and
+ * one bulk write, the changed subscriptions are written through to the cache after commit, and its offsets
+ * are committed once. Renewed and suspended notifications go through the outbox in the same transaction, so a
+ * failed publish never fails the batch.
+ * <p>
+ * Events whose subscription changed concurrently are applied one by one, in record order. The first one that
+ * fails is reported with its index through a {@link BatchListenerFailedException}: the error handler commits
+ * the records before it and retries, then recovers, that record alone. Records after it are redelivered and
+ * skipped as already processed if the batch applied them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentEventBatchConsumer {
+
+    private final SubscriptionService subscriptionService;
+    private final PaymentEventConsumer paymentEventConsumer;
+
+    @KafkaListener(topics = "payment-events", groupId = "subscription-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${subscription.kafka.payment-events.batch-enabled:false}")
+    public void consumePaymentEvents(
+            List<ConsumerRecord<String, Object>> records,
+            Acknowledgment acknowledgment) {
+
+        log.info("Received batch of {} payment events", records.size());
+
+        List<PaymentEvent> events = new ArrayList<>(records.size());
+        Map<UUID, Integer> recordIndexes = new HashMap<>();
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, Object> record = records.get(index);
+            if (record.value() instanceof PaymentEvent event) {
+                PaymentEvent identified = PaymentEventConsumer.identified(event, record);
+                events.add(identified);
+                recordIndexes.putIfAbsent(identified.eventId(), index);
+            } else {
+                log.warn("Skipping undeserializable or unknown payment event at {}-{}@{}, key: {}, value: {}",
+                        record.topic(), record.partition(), record.offset(), record.key(), record.value());
+            }
+        }
+
+        PaymentBatchResult result = subscriptionService.applyPaymentEvents(events);
+
+        List<PaymentEvent> retries = result.retryIndividually().stream()
+                .sorted(Comparator.comparing(event -> recordIndexes.get(event.eventId())))
+                .toList();
+        for (PaymentEvent event : retries) {
+            try {
+                paymentEventConsumer.apply(event);
+            } catch (Exception e) {
+                int index = recordIndexes.get(event.eventId());
+                throw new BatchListenerFailedException(
+                        "Error applying payment event individually for subscription: " + event.subscriptionId(),
+                        e, index);
+            }
+        }
+
+        acknowledgment.acknowledge();
+    }
+}
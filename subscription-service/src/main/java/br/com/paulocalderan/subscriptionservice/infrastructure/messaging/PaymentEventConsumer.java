@@ -1,21 +1,19 @@
 package br.com.paulocalderan.subscriptionservice.infrastructure.messaging;
 
 import br.com.paulocalderan.subscriptionservice.application.service.SubscriptionService;
-import br.com.paulocalderan.subscriptionservice.domain.model.Status;
 import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
-import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.PaymentEvent;
 import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.PaymentProcessedFailedEvent;
 import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.PaymentProcessedSuccessEvent;
-import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -24,11 +22,9 @@ import java.util.UUID;
 public class PaymentEventConsumer {
 
     private final SubscriptionService subscriptionService;
-    private final SubscriptionRepository subscriptionRepository;
-    private final SubscriptionEventProducer subscriptionEventProducer;
-    private final SubscriptionMetrics metrics;
 
-    @KafkaListener(topics = "payment-events", groupId = "subscription-service-group")
+    @KafkaListener(topics = "payment-events", groupId = "subscription-service-group",
+            autoStartup = "#{!${subscription.kafka.payment-events.batch-enabled:false}}")
     public void consumePaymentEvent(
             ConsumerRecord<String, Object> record,
             Acknowledgment acknowledgment) {
@@ -38,12 +34,8 @@ public class PaymentEventConsumer {
             log.info("Received payment event with key: {}, event type: {}, event: {}", 
                     record.key(), eventValue != null ? eventValue.getClass().getName() : "null", eventValue);
 
-            if (eventValue instanceof PaymentProcessedSuccessEvent successEvent) {
-                log.info("Detected PaymentProcessedSuccessEvent, processing...");
-                handlePaymentSuccess(successEvent);
-            } else if (eventValue instanceof PaymentProcessedFailedEvent failedEvent) {
-                log.info("Detected PaymentProcessedFailedEvent, processing...");
-                handlePaymentFailed(failedEvent);
+            if (eventValue instanceof PaymentEvent event) {
+                apply(identified(event, record));
             } else {
                 log.warn("Unknown payment event type: {}, event: {}", 
                         eventValue != null ? eventValue.getClass().getName() : "null", eventValue);
@@ -57,24 +49,34 @@ public class PaymentEventConsumer {
         }
     }
 
+    /**
+     * Events published before payment-service stamped an event id are identified by their record
+     * coordinates, which stay the same when the record is redelivered.
+     */
+    static PaymentEvent identified(PaymentEvent event, ConsumerRecord<?, ?> record) {
+        if (event.eventId() != null) {
+            return event;
+        }
+        String coordinates = record.topic() + "-" + record.partition() + "@" + record.offset();
+        return event.withEventId(UUID.nameUUIDFromBytes(coordinates.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    void apply(PaymentEvent event) {
+        switch (event) {
+            case PaymentProcessedSuccessEvent successEvent -> handlePaymentSuccess(successEvent);
+            case PaymentProcessedFailedEvent failedEvent -> handlePaymentFailed(failedEvent);
+        }
+    }
+
     private void handlePaymentSuccess(PaymentProcessedSuccessEvent event) {
-        log.info("Processing payment success event for subscription: {}", event.subscriptionId());
+        log.info("Processing payment success event {} for subscription: {}", event.eventId(), event.subscriptionId());
         
         try {
-            Subscription subscription = subscriptionRepository.findById(event.subscriptionId())
-                    .orElseThrow(() -> new RuntimeException("Subscription not found: " + event.subscriptionId()));
-
-            if (subscription.getStatus() == Status.PROCESSING) {
-                subscription = subscriptionService.activateSubscription(event.subscriptionId());
-                log.info("New subscription activated successfully: {}", event.subscriptionId());
-            } else if (subscription.getStatus() == Status.ACTIVE) {
-                subscription = subscriptionService.renewSubscription(event.subscriptionId());
-                subscriptionEventProducer.publishSubscriptionRenewed(
-                        new br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.SubscriptionRenewedEvent(
-                                subscription.getId(), subscription.getUserId()));
-                log.info("Subscription renewed successfully: {}", event.subscriptionId());
+            Optional<Subscription> applied = subscriptionService.applyPaymentEvent(event);
+            if (applied.isPresent()) {
+                log.info("Subscription {} is {} after payment success", event.subscriptionId(), applied.get().getStatus());
             } else {
-                log.warn("Subscription {} is not in PROCESSING or ACTIVE status, ignoring payment success", event.subscriptionId());
+                log.warn("Subscription {} not found, not in PROCESSING or ACTIVE status, or event already applied, ignoring payment success", event.subscriptionId());
             }
         } catch (Exception e) {
             log.error("Error processing payment success for subscription: {}", event.subscriptionId(), e);
@@ -83,30 +85,15 @@ public class PaymentEventConsumer {
     }
 
     private void handlePaymentFailed(PaymentProcessedFailedEvent event) {
-        log.info("Processing payment failed event for subscription: {}, reason: {}", 
-                event.subscriptionId(), event.reason());
+        log.info("Processing payment failed event {} for subscription: {}, reason: {}", 
+                event.eventId(), event.subscriptionId(), event.reason());
         
         try {
-            Subscription subscription = subscriptionRepository.findById(event.subscriptionId())
-                    .orElseThrow(() -> new RuntimeException("Subscription not found: " + event.subscriptionId()));
-
-            if (subscription.getStatus() == Status.PROCESSING) {
-                subscription = subscriptionService.failSubscription(event.subscriptionId());
-                log.info("New subscription payment failed, marked as FAILED: {}", event.subscriptionId());
-            } else if (subscription.getStatus() == Status.ACTIVE) {
-                subscription = subscriptionService.incrementFailedAttempt(event.subscriptionId());
-
-                metrics.incrementRenewalError(subscription.getPlan().name());
-
-                if (subscription.getStatus() == Status.SUSPENDED) {
-                    subscriptionEventProducer.publishSubscriptionSuspended(
-                            new br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.SubscriptionSuspendedEvent(
-                                    subscription.getId(), subscription.getUserId()));
-
-                    log.info("Subscription suspended after 3 failed attempts: {}", event.subscriptionId());
-                }
+            Optional<Subscription> applied = subscriptionService.applyPaymentEvent(event);
+            if (applied.isPresent()) {
+                log.info("Subscription {} is {} after payment failure", event.subscriptionId(), applied.get().getStatus());
             } else {
-                log.warn("Subscription {} is not in PROCESSING or ACTIVE status, ignoring payment failed", event.subscriptionId());
+                log.warn("Subscription {} not found, not in PROCESSING or ACTIVE status, or event already applied, ignoring payment failed", event.subscriptionId());
             }
         } catch (Exception e) {
             log.error("Error processing payment failed for subscription: {}", event.subscriptionId(), e);
@@ -114,4 +101,3 @@ public class PaymentEventConsumer {
         }
     }
 }
-
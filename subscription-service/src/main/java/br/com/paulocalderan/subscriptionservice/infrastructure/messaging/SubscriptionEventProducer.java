@@ -1,20 +1,40 @@
 package br.com.paulocalderan.subscriptionservice.infrastructure.messaging;
 
 import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.*;
-import lombok.RequiredArgsConstructor;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class SubscriptionEventProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
     private static final String SUBSCRIPTION_EVENTS_TOPIC = "subscription-events";
 
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final SubscriptionMetrics metrics;
+    private final Semaphore inFlightPermits;
+
+    public SubscriptionEventProducer(KafkaTemplate<String, Object> kafkaTemplate,
+                                     SubscriptionMetrics metrics,
+                                     @Value("${subscription.kafka.producer.max-in-flight:1000}") int maxInFlight) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.metrics = metrics;
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        metrics.registerGauge("subscription_event_publish_in_flight",
+                "Number of events sent and not yet acknowledged by the broker",
+                () -> maxInFlight - inFlightPermits.availablePermits());
+    }
+
     public void publishSubscriptionCreated(SubscriptionCreatedEvent event) {
         publishEvent(event.subscriptionId().toString(), event);
     }
@@ -35,15 +55,91 @@ public class SubscriptionEventProducer {
         publishEvent(event.subscriptionId().toString(), event);
     }
 
+    /**
+     * Publishes without blocking the caller. Inside a transaction the send is deferred until the transaction
+     * commits, and the returned future fails if it rolls back. When the number of unacknowledged sends reaches
+     * {@code subscription.kafka.producer.max-in-flight} the caller waits for a permit.
+     */
+    public CompletableFuture<SendResult<String, Object>> publishAsync(SubscriptionEvent event) {
+        String key = event.subscriptionId().toString();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return send(key, event);
+        }
+
+        CompletableFuture<SendResult<String, Object>> deferred = new CompletableFuture<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(key, event).whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        deferred.completeExceptionally(ex);
+                    } else {
+                        deferred.complete(result);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    deferred.completeExceptionally(new IllegalStateException(
+                            "Transaction did not commit, event not published: " + event));
+                }
+            }
+        });
+        return deferred;
+    }
+
+    /**
+     * Sends every event without waiting for individual acknowledgements, letting the producer batch them.
+     * The returned future completes once all of them are acknowledged, or fails if any of them failed.
+     */
+    public CompletableFuture<Void> publishAll(Collection<? extends SubscriptionEvent> events) {
+        return CompletableFuture.allOf(events.stream()
+                .map(this::publishAsync)
+                .toArray(CompletableFuture[]::new));
+    }
+
     private void publishEvent(String key, Object event) {
         try {
-            SendResult<String, Object> result = kafkaTemplate.send(
-                    SUBSCRIPTION_EVENTS_TOPIC, key, event).get();
+            send(key, event).get();
             log.info("Event published successfully: {} to topic: {}", event, SUBSCRIPTION_EVENTS_TOPIC);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while publishing event to Kafka: " + SUBSCRIPTION_EVENTS_TOPIC, e);
         } catch (Exception e) {
             log.error("Failed to publish event: {} to topic: {}", event, SUBSCRIPTION_EVENTS_TOPIC, e);
             throw new RuntimeException("Failed to publish event to Kafka: " + SUBSCRIPTION_EVENTS_TOPIC, e);
         }
     }
-}
 
+    private CompletableFuture<SendResult<String, Object>> send(String key, Object event) {
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> future;
+        try {
+            future = kafkaTemplate.send(SUBSCRIPTION_EVENTS_TOPIC, key, event);
+        } catch (RuntimeException e) {
+            inFlightPermits.release();
+            metrics.incrementEventPublishFailed(SUBSCRIPTION_EVENTS_TOPIC);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return future.whenComplete((result, ex) -> {
+            inFlightPermits.release();
+            if (ex != null) {
+                metrics.incrementEventPublishFailed(SUBSCRIPTION_EVENTS_TOPIC);
+                log.error("Failed to publish event: {} to topic: {}", event, SUBSCRIPTION_EVENTS_TOPIC, ex);
+            } else {
+                metrics.recordEventPublished(SUBSCRIPTION_EVENTS_TOPIC, System.nanoTime() - start);
+                log.debug("Event published: {} to topic: {}", event, SUBSCRIPTION_EVENTS_TOPIC);
+            }
+        });
+    }
+}
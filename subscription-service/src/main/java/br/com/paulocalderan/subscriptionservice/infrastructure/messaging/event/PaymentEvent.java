@@ -12,6 +12,14 @@ import java.util.UUID;
     @JsonSubTypes.Type(value = PaymentProcessedFailedEvent.class, name = "PAYMENT_PROCESSED_FAILED")
 })
 public sealed interface PaymentEvent permits PaymentProcessedSuccessEvent, PaymentProcessedFailedEvent {
+    /**
+     * Identifies the payment outcome so a redelivered event is applied only once. Null for events published
+     * before payment-service started sending it.
+     */
+    UUID eventId();
+
+    PaymentEvent withEventId(UUID eventId);
+
     UUID subscriptionId();
     UUID userId();
     String eventType();
@@ -7,6 +7,7 @@ import java.util.UUID;
 
 @JsonTypeName("PAYMENT_PROCESSED_FAILED")
 public record PaymentProcessedFailedEvent(
+    UUID eventId,
     UUID subscriptionId,
     UUID userId,
     String reason,
@@ -14,7 +15,12 @@ public record PaymentProcessedFailedEvent(
     LocalDateTime timestamp
 ) implements PaymentEvent {
     public PaymentProcessedFailedEvent(UUID subscriptionId, UUID userId, String reason) {
-        this(subscriptionId, userId, reason, "PAYMENT_PROCESSED_FAILED", LocalDateTime.now());
+        this(UUID.randomUUID(), subscriptionId, userId, reason, "PAYMENT_PROCESSED_FAILED", LocalDateTime.now());
+    }
+
+    @Override
+    public PaymentProcessedFailedEvent withEventId(UUID eventId) {
+        return new PaymentProcessedFailedEvent(eventId, subscriptionId, userId, reason, eventType, timestamp);
     }
 }
 
@@ -7,13 +7,19 @@ import java.util.UUID;
 
 @JsonTypeName("PAYMENT_PROCESSED_SUCCESS")
 public record PaymentProcessedSuccessEvent(
+    UUID eventId,
     UUID subscriptionId,
     UUID userId,
     String eventType,
     LocalDateTime timestamp
 ) implements PaymentEvent {
     public PaymentProcessedSuccessEvent(UUID subscriptionId, UUID userId) {
-        this(subscriptionId, userId, "PAYMENT_PROCESSED_SUCCESS", LocalDateTime.now());
+        this(UUID.randomUUID(), subscriptionId, userId, "PAYMENT_PROCESSED_SUCCESS", LocalDateTime.now());
+    }
+
+    @Override
+    public PaymentProcessedSuccessEvent withEventId(UUID eventId) {
+        return new PaymentProcessedSuccessEvent(eventId, subscriptionId, userId, eventType, timestamp);
     }
 }
 
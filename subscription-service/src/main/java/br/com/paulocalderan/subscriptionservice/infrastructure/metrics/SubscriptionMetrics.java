@@ -1,11 +1,16 @@
 package br.com.paulocalderan.subscriptionservice.infrastructure.metrics;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 @Slf4j
 @Component
 public class SubscriptionMetrics {
@@ -56,5 +61,135 @@ public class SubscriptionMetrics {
                 .register(meterRegistry)
                 .increment();
     }
-}
 
+    public void incrementRenewalRequested(long count) {
+        Counter.builder("subscription_renewal_requested_total")
+                .description("Total number of renewal requests published by the renewal run")
+                .tags(Tags.of("service", "subscription-service"))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    public void recordEventPublished(String topic, long durationNanos) {
+        Timer.builder("subscription_event_publish_duration")
+                .description("Time to get a broker acknowledgement for a published event by topic")
+                .tags(Tags.of("service", "subscription-service", "topic", topic))
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementEventPublishFailed(String topic) {
+        Counter.builder("subscription_event_publish_failed_total")
+                .description("Total number of events that failed to publish by topic")
+                .tags(Tags.of("service", "subscription-service", "topic", topic))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementOutboxEventDeadLettered(String eventType) {
+        Counter.builder("subscription_outbox_dead_lettered_total")
+                .description("Total number of unreadable outbox events moved to the dead letter collection by event type")
+                .tags(Tags.of("service", "subscription-service", "event_type", String.valueOf(eventType)))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementCacheRequest(String layer, String result) {
+        incrementCacheRequest(layer, result, 1);
+    }
+
+    public void incrementCacheRequest(String layer, String result, long count) {
+        if (count == 0) {
+            return;
+        }
+        Counter.builder("subscription_cache_requests_total")
+                .description("Total number of active subscription cache lookups by layer and result")
+                .tags(Tags.of("service", "subscription-service", "layer", layer, "result", result))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    public void incrementCacheLoadCoalesced(String scope) {
+        Counter.builder("subscription_cache_load_coalesced_total")
+                .description("Total number of cache misses served by another caller's in-flight database load")
+                .tags(Tags.of("service", "subscription-service", "scope", scope))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementCacheWriteThrough(String result) {
+        Counter.builder("subscription_cache_write_through_total")
+                .description("Total number of cache writes after a transition, by whether the version guard accepted them")
+                .tags(Tags.of("service", "subscription-service", "result", result))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementCacheRefresh(String trigger) {
+        Counter.builder("subscription_cache_refreshes_total")
+                .description("Total number of background cache reloads, by early (XFetch) or stale trigger")
+                .tags(Tags.of("service", "subscription-service", "trigger", trigger))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementChangeStreamEvents(long count) {
+        Counter.builder("subscription_cache_change_stream_events_total")
+                .description("Total number of subscription change stream events applied to the cache")
+                .tags(Tags.of("service", "subscription-service"))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    public void incrementCacheWarmed(String source, long count) {
+        Counter.builder("subscription_cache_warmed_total")
+                .description("Total number of users loaded into the cache by warm-up, by candidate source")
+                .tags(Tags.of("service", "subscription-service", "source", source))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    public void recordStaleCleanupRun(long cancelled, long durationNanos) {
+        Counter.builder("subscription_stale_processing_cancelled_total")
+                .description("Total number of stale PROCESSING subscriptions cancelled by the cleanup job")
+                .tags(Tags.of("service", "subscription-service"))
+                .register(meterRegistry)
+                .increment(cancelled);
+        Timer.builder("subscription_stale_cleanup_duration")
+                .description("Time this instance spent on each stale PROCESSING cleanup run")
+                .tags(Tags.of("service", "subscription-service"))
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incrementWorkPartitionGivenUp(String job) {
+        Counter.builder("subscription_work_partitions_given_up_total")
+                .description("Total number of job partitions given up after failing max-attempts times, by job")
+                .tags(Tags.of("service", "subscription-service", "job", job))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void incrementExpiryIndexRepaired(long count) {
+        Counter.builder("subscription_expiry_index_repaired_total")
+                .description("Total number of ACTIVE subscriptions found missing from the expiry index by reconciliation")
+                .tags(Tags.of("service", "subscription-service"))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    public void recordVirtualThreadPinned(String site, long durationNanos) {
+        Timer.builder("subscription_virtual_thread_pinned_duration")
+                .description("Time virtual threads stayed pinned to their carrier thread by first application frame")
+                .tags(Tags.of("service", "subscription-service", "site", site))
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registerGauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value)
+                .description(description)
+                .tags(Tags.of("service", "subscription-service"))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, active with
+ * {@code spring.threads.virtual.enabled=true}. A virtual thread that blocks inside {@code synchronized} or a
+ * native frame holds its carrier, so a few of them blocking on I/O at once can starve every other request.
+ * <p>
+ * Listens to the JDK's {@code jdk.VirtualThreadPinned} events in process, for pins longer than
+ * {@code subscription.virtual-threads.pinning-threshold}. Each pin is recorded on
+ * {@code subscription_virtual_thread_pinned_duration}, tagged with the first frame outside the JDK, and the
+ * first pin from each of those frames is logged with its stack.
+ */
+@Slf4j
+@Component
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+    private static final Set<String> JDK_PACKAGES = Set.of("java.", "javax.", "jdk.", "sun.", "com.sun.");
+
+    private final SubscriptionMetrics metrics;
+    private final boolean enabled;
+    private final Duration threshold;
+
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(SubscriptionMetrics metrics,
+                                       @Value("${spring.threads.virtual.enabled:false}") boolean enabled,
+                                       @Value("${subscription.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        log.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null
+                ? event.getStackTrace().getFrames()
+                : List.of();
+        String site = frames.stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(VirtualThreadPinningMonitor::describe)
+                .filter(frame -> JDK_PACKAGES.stream().noneMatch(frame::startsWith))
+                .findFirst()
+                .orElse("unknown");
+
+        metrics.recordVirtualThreadPinned(site, event.getDuration().toNanos());
+
+        if (loggedSites.add(site)) {
+            log.warn("Virtual thread pinned to its carrier for {} ms at {}:\n\t{}",
+                    event.getDuration().toMillis(), site, stack(event.getStackTrace()));
+        }
+    }
+
+    private static String stack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "(no stack trace)";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> describe(frame) + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n\t"));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An outbox event the relay could not read, kept with the failure for inspection and manual replay.
+ */
+@Document(collection = "subscription_outbox_dead_letter")
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxDeadLetter {
+
+    @Id
+    private String id;
+
+    private UUID subscriptionId;
+
+    private int partition;
+
+    private String eventType;
+
+    private String payload;
+
+    private Instant createdAt;
+
+    private String error;
+
+    private Instant deadLetteredAt;
+}
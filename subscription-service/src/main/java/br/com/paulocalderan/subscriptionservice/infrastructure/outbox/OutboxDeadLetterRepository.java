@@ -0,0 +1,8 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxDeadLetterRepository extends MongoRepository<OutboxDeadLetter, String> {
+}
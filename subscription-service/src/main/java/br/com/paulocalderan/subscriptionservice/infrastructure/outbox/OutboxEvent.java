@@ -0,0 +1,39 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Document(collection = "subscription_outbox")
+@CompoundIndex(name = "partition_sequence", def = "{'partition': 1, 'sequence': 1}")
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    private String id;
+
+    private UUID subscriptionId;
+
+    private int partition;
+
+    /**
+     * Position of the event in its partition, in commit order, see {@link SubscriptionOutbox}.
+     */
+    private long sequence;
+
+    private String eventType;
+
+    private String payload;
+
+    private Instant createdAt;
+}
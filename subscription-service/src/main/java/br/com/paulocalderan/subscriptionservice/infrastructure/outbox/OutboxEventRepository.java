@@ -0,0 +1,16 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends MongoRepository<OutboxEvent, String> {
+
+    List<OutboxEvent> findByPartitionOrderBySequenceAsc(int partition, Pageable pageable);
+
+    Optional<OutboxEvent> findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,20 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Last outbox sequence number taken in one outbox partition, see {@link SubscriptionOutbox}.
+ */
+@Document(collection = "subscription_outbox_sequences")
+@Getter
+@NoArgsConstructor
+public class OutboxSequence {
+
+    @Id
+    private int partition;
+
+    private long value;
+}
@@ -0,0 +1,112 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.SubscriptionEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Records subscription events in the {@code subscription_outbox} collection. Called inside the same
+ * transaction as the state change, so an event is stored if and only if the change is committed;
+ * {@link SubscriptionOutboxRelay} publishes it to Kafka afterwards.
+ * <p>
+ * Each event takes the next {@code sequence} of its partition from {@code subscription_outbox_sequences} with a
+ * {@code $inc} in the same transaction. A concurrent transaction appending to the same partition hits a write
+ * conflict on the counter until this one commits or aborts, so sequence order is commit order and the relay
+ * never sees a later sequence committed before an earlier one. {@code _id} order would not do: ObjectIds only
+ * have second precision and come from each instance's own clock.
+ */
+@Slf4j
+@Component
+public class SubscriptionOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final int partitions;
+
+    public SubscriptionOutbox(OutboxEventRepository outboxEventRepository,
+                              MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${subscription.outbox.partitions:16}") int partitions) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.partitions = partitions;
+    }
+
+    public void append(SubscriptionEvent event) {
+        int partition = partitionOf(event);
+        outboxEventRepository.insert(toOutboxEvent(event, partition, reserveSequences(partition, 1)));
+        log.debug("Event {} stored in outbox for subscription: {}", event.eventType(), event.subscriptionId());
+    }
+
+    /**
+     * Stores the events in one batched insert, after reserving one block of sequences per partition.
+     */
+    public void appendAll(Collection<? extends SubscriptionEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<SubscriptionEvent>> byPartition = events.stream()
+                .collect(Collectors.groupingBy(this::partitionOf, LinkedHashMap::new, Collectors.toList()));
+
+        List<OutboxEvent> outboxEvents = byPartition.entrySet().stream()
+                .flatMap(entry -> {
+                    int partition = entry.getKey();
+                    List<SubscriptionEvent> partitionEvents = entry.getValue();
+                    long first = reserveSequences(partition, partitionEvents.size());
+                    return IntStream.range(0, partitionEvents.size())
+                            .mapToObj(i -> toOutboxEvent(partitionEvents.get(i), partition, first + i));
+                })
+                .toList();
+        outboxEventRepository.insert(outboxEvents);
+        log.debug("{} events stored in outbox", events.size());
+    }
+
+    /**
+     * Takes {@code count} consecutive sequences of {@code partition} and returns the first one.
+     */
+    private long reserveSequences(int partition, int count) {
+        OutboxSequence sequence = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(partition)),
+                new Update().inc("value", count),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                OutboxSequence.class);
+        return sequence.getValue() - count + 1;
+    }
+
+    private int partitionOf(SubscriptionEvent event) {
+        return Math.floorMod(event.subscriptionId().hashCode(), partitions);
+    }
+
+    private OutboxEvent toOutboxEvent(SubscriptionEvent event, int partition, long sequence) {
+        try {
+            return OutboxEvent.builder()
+                    .subscriptionId(event.subscriptionId())
+                    .partition(partition)
+                    .sequence(sequence)
+                    .eventType(event.eventType())
+                    .payload(objectMapper.writeValueAsString(event))
+                    .createdAt(Instant.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize event for outbox: " + event, e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.SubscriptionEventProducer;
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.SubscriptionEvent;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox to {@code subscription-events}. The outbox is split into partitions by subscriptionId;
+ * each partition is drained by whichever instance holds its lock, in {@code sequence} order, which is the
+ * order the events were committed in, so several instances drain different partitions at once while events of
+ * the same subscription keep their order. An event whose
+ * payload cannot be read is moved to {@code subscription_outbox_dead_letter} instead of blocking its partition.
+ */
+@Slf4j
+@Component
+public class SubscriptionOutboxRelay {
+
+    private static final String LOCK_KEY_PREFIX = "subscription-outbox:partition:";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxDeadLetterRepository deadLetterRepository;
+    private final SubscriptionEventProducer eventProducer;
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final SubscriptionMetrics metrics;
+    private final int partitions;
+    private final int batchSize;
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public SubscriptionOutboxRelay(OutboxEventRepository outboxEventRepository,
+                                   OutboxDeadLetterRepository deadLetterRepository,
+                                   SubscriptionEventProducer eventProducer,
+                                   RedissonClient redissonClient,
+                                   ObjectMapper objectMapper,
+                                   SubscriptionMetrics metrics,
+                                   @Value("${subscription.outbox.partitions:16}") int partitions,
+                                   @Value("${subscription.outbox.batch-size:500}") int batchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.eventProducer = eventProducer;
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+
+        metrics.registerGauge("subscription_outbox_pending_events",
+                "Number of events waiting in the outbox", pendingEvents::get);
+        metrics.registerGauge("subscription_outbox_lag_seconds",
+                "Age of the oldest event waiting in the outbox", () -> lagMillis.get() / 1000.0);
+    }
+
+    public void drain() {
+        int published = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            RLock lock = redissonClient.getLock(LOCK_KEY_PREFIX + partition);
+            // no explicit lease: the Redisson watchdog keeps the lock while this instance is alive
+            // and lets it expire if the instance dies, handing the partition to another one
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                published += drainPartition(partition);
+            } finally {
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
+            }
+        }
+        updateLag();
+
+        if (published > 0) {
+            log.info("Outbox relay published {} events", published);
+        }
+    }
+
+    private int drainPartition(int partition) {
+        int published = 0;
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findByPartitionOrderBySequenceAsc(partition, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<SubscriptionEvent> events = new ArrayList<>(batch.size());
+            for (OutboxEvent outboxEvent : batch) {
+                readPayload(outboxEvent).ifPresent(events::add);
+            }
+
+            eventProducer.publishAll(events).join();
+            outboxEventRepository.deleteAllById(batch.stream().map(OutboxEvent::getId).toList());
+            published += events.size();
+        } while (batch.size() == batchSize);
+
+        return published;
+    }
+
+    private Optional<SubscriptionEvent> readPayload(OutboxEvent outboxEvent) {
+        try {
+            return Optional.of(objectMapper.readValue(outboxEvent.getPayload(), SubscriptionEvent.class));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            deadLetter(outboxEvent, e);
+            return Optional.empty();
+        }
+    }
+
+    private void deadLetter(OutboxEvent outboxEvent, Exception cause) {
+        log.error("Moving unreadable outbox event {} of type {} for subscription {} to the dead letter collection",
+                outboxEvent.getId(), outboxEvent.getEventType(), outboxEvent.getSubscriptionId(), cause);
+        // saved before the batch delete, so the event is never lost if the relay dies in between
+        deadLetterRepository.save(OutboxDeadLetter.builder()
+                .id(outboxEvent.getId())
+                .subscriptionId(outboxEvent.getSubscriptionId())
+                .partition(outboxEvent.getPartition())
+                .eventType(outboxEvent.getEventType())
+                .payload(outboxEvent.getPayload())
+                .createdAt(outboxEvent.getCreatedAt())
+                .error(String.valueOf(cause.getMessage()))
+                .deadLetteredAt(Instant.now())
+                .build());
+        metrics.incrementOutboxEventDeadLettered(outboxEvent.getEventType());
+    }
+
+    private void updateLag() {
+        pendingEvents.set(outboxEventRepository.count());
+        lagMillis.set(outboxEventRepository.findFirstByOrderByIdAsc()
+                .map(oldest -> Duration.between(oldest.getCreatedAt(), Instant.now()).toMillis())
+                .orElse(0L));
+    }
+}
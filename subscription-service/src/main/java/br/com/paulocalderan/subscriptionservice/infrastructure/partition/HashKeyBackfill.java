@@ -0,0 +1,35 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.partition;
+
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns a partition key and billing slot to subscriptions created before they existed, which the
+ * partitioned jobs and the renewal would otherwise never select. Idempotent, so every instance may run it
+ * on startup.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HashKeyBackfill {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final SubscriptionRepository subscriptionRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            long updated = subscriptionRepository.assignMissingHashKeys(BATCH_SIZE);
+            if (updated > 0) {
+                log.info("Assigned partition keys and billing slots to {} subscriptions", updated);
+            }
+        } catch (Exception e) {
+            log.error("Error assigning missing partition keys and billing slots", e);
+        }
+    }
+}
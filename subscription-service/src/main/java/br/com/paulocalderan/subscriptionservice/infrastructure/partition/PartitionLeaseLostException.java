@@ -0,0 +1,8 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.partition;
+
+public class PartitionLeaseLostException extends RuntimeException {
+
+    public PartitionLeaseLostException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.partition;
+
+import java.util.UUID;
+
+/**
+ * A partition claimed by this instance. {@link #advance} records progress and renews the lease; it throws
+ * {@link PartitionLeaseLostException} once another instance has taken the partition over.
+ */
+public interface WorkPartition {
+
+    int index();
+
+    /**
+     * The last id processed by a previous holder, or {@code null} to start from the beginning.
+     */
+    UUID checkpoint();
+
+    void advance(UUID lastProcessedId);
+}
@@ -0,0 +1,235 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.partition;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Spreads a job run over every instance that runs it. The run is split into {@code partitions} leases
+ * stored in MongoDB; each instance repeatedly claims a free or expired lease with findAndModify,
+ * processes it and marks it completed, so N instances work on N partitions at once. A lease is renewed on
+ * every {@link WorkPartition#advance} and by a heartbeat every third of {@code subscription.partitioning.lease-ttl}
+ * while its processor runs, so a slow chunk does not lose it; if its holder dies, the lease expires after the
+ * TTL and another instance resumes it from its checkpoint. A partition that fails {@code max-attempts} times
+ * is given up, logged and counted in {@code subscription_work_partitions_given_up_total} once per run.
+ */
+@Slf4j
+@Component
+public class WorkPartitionCoordinator {
+
+    private final MongoTemplate mongoTemplate;
+    private final SubscriptionMetrics metrics;
+    private final Duration leaseTtl;
+    private final int maxAttempts;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "work-partition-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WorkPartitionCoordinator(MongoTemplate mongoTemplate,
+                                    SubscriptionMetrics metrics,
+                                    @Value("${subscription.partitioning.lease-ttl:2m}") Duration leaseTtl,
+                                    @Value("${subscription.partitioning.max-attempts:3}") int maxAttempts) {
+        this.mongoTemplate = mongoTemplate;
+        this.metrics = metrics;
+        this.leaseTtl = leaseTtl;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PreDestroy
+    void shutdownHeartbeats() {
+        heartbeats.shutdownNow();
+    }
+
+    /**
+     * Processes partitions of {@code job}'s {@code run} until none is left unfinished. Returns once every
+     * partition is completed or given up, waiting meanwhile for leases held by other instances in case
+     * they expire.
+     */
+    public void run(String job, String run, int partitions, Consumer<WorkPartition> processor) {
+        createLeases(job, run, partitions);
+        int processed = 0;
+
+        while (true) {
+            Optional<WorkPartitionLease> claimed = claim(job, run);
+            if (claimed.isPresent()) {
+                process(claimed.get(), processor);
+                processed++;
+                continue;
+            }
+            if (!hasUnfinished(job, run)) {
+                reportGivenUp(job, run);
+                break;
+            }
+            try {
+                Thread.sleep(leaseTtl.toMillis() / 4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for partitions of {} run {}", job, run);
+                return;
+            }
+        }
+
+        log.info("{} run {} finished, {} of {} partitions processed by this instance", job, run, processed, partitions);
+    }
+
+    private void process(WorkPartitionLease lease, Consumer<WorkPartition> processor) {
+        log.info("Processing partition {} of {} run {} from checkpoint {}",
+                lease.getPartition(), lease.getJob(), lease.getRun(), lease.getCheckpoint());
+        long heartbeatMillis = Math.max(1, leaseTtl.toMillis() / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(
+                () -> renew(lease), heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        try {
+            processor.accept(new LeasedPartition(lease));
+            updateOwned(lease.getId(), new Update().set("completed", true).unset("owner"));
+        } catch (PartitionLeaseLostException e) {
+            log.warn(e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Error processing partition {} of {} run {}", lease.getPartition(), lease.getJob(), lease.getRun(), e);
+            // release so the partition can be retried right away instead of after the lease expires
+            mongoTemplate.updateFirst(ownedBy(lease.getId()), new Update().unset("owner").set("leaseUntil", Instant.now()),
+                    WorkPartitionLease.class);
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    /**
+     * Extends a lease that is still ours. Once it has been taken over the heartbeat stops, and the next
+     * {@link WorkPartition#advance} of the processor fails with {@link PartitionLeaseLostException}.
+     */
+    private void renew(WorkPartitionLease lease) {
+        try {
+            long matched = mongoTemplate.updateFirst(ownedBy(lease.getId()),
+                    new Update().set("leaseUntil", Instant.now().plus(leaseTtl)), WorkPartitionLease.class)
+                    .getMatchedCount();
+            if (matched == 0) {
+                log.warn("Lease {} was taken over by another instance, stopping its heartbeat", lease.getId());
+                throw new PartitionLeaseLostException("Lease " + lease.getId() + " was taken over by another instance");
+            }
+        } catch (PartitionLeaseLostException e) {
+            // ends the periodic task
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Error renewing lease {}, retrying on the next heartbeat", lease.getId(), e);
+        }
+    }
+
+    /**
+     * Reports each partition that ran out of attempts exactly once, whichever instance gets there first.
+     */
+    private void reportGivenUp(String job, String run) {
+        Query query = new Query(Criteria.where("job").is(job)
+                .and("run").is(run)
+                .and("completed").is(false)
+                .and("attempts").gte(maxAttempts)
+                .and("givenUp").ne(true));
+        WorkPartitionLease givenUp;
+        while ((givenUp = mongoTemplate.findAndModify(query, new Update().set("givenUp", true),
+                WorkPartitionLease.class)) != null) {
+            log.error("Giving up partition {} of {} run {} after {} attempts, last checkpoint {}",
+                    givenUp.getPartition(), job, run, givenUp.getAttempts(), givenUp.getCheckpoint());
+            metrics.incrementWorkPartitionGivenUp(job);
+        }
+    }
+
+    private void createLeases(String job, String run, int partitions) {
+        Instant now = Instant.now();
+        for (int partition = 0; partition < partitions; partition++) {
+            mongoTemplate.upsert(
+                    new Query(Criteria.where("_id").is(leaseId(job, run, partition))),
+                    new Update()
+                            .setOnInsert("job", job)
+                            .setOnInsert("run", run)
+                            .setOnInsert("partition", partition)
+                            .setOnInsert("leaseUntil", now)
+                            .setOnInsert("attempts", 0)
+                            .setOnInsert("completed", false)
+                            .setOnInsert("createdAt", now),
+                    WorkPartitionLease.class);
+        }
+    }
+
+    private Optional<WorkPartitionLease> claim(String job, String run) {
+        Instant now = Instant.now();
+        Query query = new Query(unfinished(job, run).and("leaseUntil").lte(now))
+                .with(Sort.by("partition"));
+        Update update = new Update()
+                .set("owner", instanceId)
+                .set("leaseUntil", now.plus(leaseTtl))
+                .inc("attempts", 1);
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(true), WorkPartitionLease.class));
+    }
+
+    private boolean hasUnfinished(String job, String run) {
+        return mongoTemplate.exists(new Query(unfinished(job, run)), WorkPartitionLease.class);
+    }
+
+    private Criteria unfinished(String job, String run) {
+        return Criteria.where("job").is(job)
+                .and("run").is(run)
+                .and("completed").is(false)
+                .and("attempts").lt(maxAttempts);
+    }
+
+    private Query ownedBy(String leaseId) {
+        return new Query(Criteria.where("_id").is(leaseId).and("owner").is(instanceId));
+    }
+
+    private void updateOwned(String leaseId, Update update) {
+        if (mongoTemplate.updateFirst(ownedBy(leaseId), update, WorkPartitionLease.class).getMatchedCount() == 0) {
+            throw new PartitionLeaseLostException("Lease " + leaseId + " was taken over by another instance");
+        }
+    }
+
+    private static String leaseId(String job, String run, int partition) {
+        return job + ":" + run + ":" + partition;
+    }
+
+    private final class LeasedPartition implements WorkPartition {
+
+        private final WorkPartitionLease lease;
+
+        private LeasedPartition(WorkPartitionLease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public int index() {
+            return lease.getPartition();
+        }
+
+        @Override
+        public UUID checkpoint() {
+            return lease.getCheckpoint();
+        }
+
+        @Override
+        public void advance(UUID lastProcessedId) {
+            updateOwned(lease.getId(), new Update()
+                    .set("checkpoint", lastProcessedId)
+                    .set("leaseUntil", Instant.now().plus(leaseTtl)));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.partition;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Lease on one partition of one run of a partitioned job. Holds the partition's progress, so whoever takes
+ * over an expired lease resumes after {@code checkpoint}.
+ */
+@Document(collection = "work_partition_leases")
+@CompoundIndex(name = "job_run_completed_lease_until", def = "{'job': 1, 'run': 1, 'completed': 1, 'leaseUntil': 1}")
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkPartitionLease {
+
+    @Id
+    private String id;
+
+    private String job;
+
+    private String run;
+
+    private int partition;
+
+    private String owner;
+
+    private Instant leaseUntil;
+
+    private UUID checkpoint;
+
+    private int attempts;
+
+    private boolean completed;
+
+    /** Set once by the instance that reports the partition as given up after {@code max-attempts}. */
+    private boolean givenUp;
+
+    @Indexed(expireAfter = "7d")
+    private Instant createdAt;
+}
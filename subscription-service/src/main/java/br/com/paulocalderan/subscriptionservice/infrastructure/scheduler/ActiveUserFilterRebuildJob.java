@@ -0,0 +1,34 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.cache.ActiveUserFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class ActiveUserFilterRebuildJob implements Job {
+
+    private final ApplicationContext applicationContext;
+
+    public ActiveUserFilterRebuildJob(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        ActiveUserFilter activeUserFilter = applicationContext.getBean(ActiveUserFilter.class);
+
+        try {
+            activeUserFilter.rebuild();
+        } catch (Exception e) {
+            log.error("Error rebuilding active user filter", e);
+            throw new JobExecutionException("Failed to rebuild active user filter", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.infrastructure.cache.SubscriptionCacheWarmer;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Fires five minutes before each billing slot starts and warms the subscriptions that slot's renewal run
+ * will request.
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class CacheWarmUpJob implements Job {
+
+    private final ApplicationContext applicationContext;
+
+    public CacheWarmUpJob(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        SubscriptionCacheWarmer cacheWarmer = applicationContext.getBean(SubscriptionCacheWarmer.class);
+
+        try {
+            LocalDateTime slotStart = LocalDateTime.ofInstant(
+                    context.getScheduledFireTime().toInstant(), ZoneId.systemDefault()).plus(Subscription.BILLING_SLOT_LENGTH);
+            cacheWarmer.warmUpSlot(slotStart.toLocalDate(), Subscription.billingSlotAt(slotStart.toLocalTime()));
+        } catch (Exception e) {
+            log.error("Error warming subscription cache", e);
+            throw new JobExecutionException("Failed to warm subscription cache", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.expiry.SubscriptionExpiryIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class ExpiryIndexReconciliationJob implements Job {
+
+    private final ApplicationContext applicationContext;
+
+    public ExpiryIndexReconciliationJob(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        SubscriptionExpiryIndex expiryIndex = applicationContext.getBean(SubscriptionExpiryIndex.class);
+
+        try {
+            expiryIndex.reconcile();
+        } catch (Exception e) {
+            log.error("Error reconciling subscription expiry index", e);
+            throw new JobExecutionException("Failed to reconcile subscription expiry index", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.outbox.SubscriptionOutboxRelay;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class OutboxRelayJob implements Job {
+
+    private final ApplicationContext applicationContext;
+
+    public OutboxRelayJob(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        SubscriptionOutboxRelay outboxRelay = applicationContext.getBean(SubscriptionOutboxRelay.class);
+
+        try {
+            outboxRelay.drain();
+        } catch (Exception e) {
+            log.error("Error draining subscription outbox", e);
+            throw new JobExecutionException("Failed to drain subscription outbox", e);
+        }
+    }
+}
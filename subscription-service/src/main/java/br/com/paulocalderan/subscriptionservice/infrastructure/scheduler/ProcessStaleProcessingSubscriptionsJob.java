@@ -1,31 +1,40 @@
 package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
 
 import br.com.paulocalderan.subscriptionservice.application.service.SubscriptionService;
-import br.com.paulocalderan.subscriptionservice.domain.model.Status;
 import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
 import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import br.com.paulocalderan.subscriptionservice.infrastructure.partition.WorkPartition;
+import br.com.paulocalderan.subscriptionservice.infrastructure.partition.WorkPartitionCoordinator;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cancels subscriptions stuck in PROCESSING since yesterday or earlier. The job fires on every instance; the
+ * instances share the run, identified by its scheduled fire time, partition by partition through
+ * {@link WorkPartitionCoordinator}.
+ */
 @Slf4j
 @Component
 public class ProcessStaleProcessingSubscriptionsJob implements Job {
 
-    private final ApplicationContext applicationContext;
+    private static final String JOB_NAME = "stale-processing";
+    private static final int BATCH_SIZE = 1000;
 
-    private static final String LOCK_KEY = "stale-processing-subscriptions:lock";
-    private static final Duration LOCK_WAIT_TIME = Duration.ofSeconds(5);
-    private static final Duration LOCK_LEASE_TIME = Duration.ofMinutes(5);
+    private final ApplicationContext applicationContext;
 
     public ProcessStaleProcessingSubscriptionsJob(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
@@ -35,61 +44,74 @@ public class ProcessStaleProcessingSubscriptionsJob implements Job {
     public void execute(JobExecutionContext context) throws JobExecutionException {
         SubscriptionRepository subscriptionRepository = applicationContext.getBean(SubscriptionRepository.class);
         SubscriptionService subscriptionService = applicationContext.getBean(SubscriptionService.class);
-        RedissonClient redissonClient = applicationContext.getBean(RedissonClient.class);
+        WorkPartitionCoordinator partitionCoordinator = applicationContext.getBean(WorkPartitionCoordinator.class);
+        SubscriptionMetrics metrics = applicationContext.getBean(SubscriptionMetrics.class);
 
         log.info("Starting stale processing subscriptions cleanup job");
 
-        RLock lock = redissonClient.getLock(LOCK_KEY);
-
         try {
-            boolean acquired = lock.tryLock(LOCK_WAIT_TIME.toMillis(), LOCK_LEASE_TIME.toMillis(), 
-                    java.util.concurrent.TimeUnit.MILLISECONDS);
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            AtomicLong cancelledCount = new AtomicLong();
+            long start = System.nanoTime();
+
+            partitionCoordinator.run(JOB_NAME, context.getScheduledFireTime().toInstant().toString(),
+                    Subscription.PARTITIONS,
+                    partition -> cancelledCount.addAndGet(cancelStale(
+                            subscriptionRepository, subscriptionService, partition, yesterday)));
+
+            long duration = System.nanoTime() - start;
+            metrics.recordStaleCleanupRun(cancelledCount.get(), duration);
+            log.info("Stale processing subscriptions cleanup job completed. Cancelled {} subscriptions in {} ms",
+                    cancelledCount.get(), Duration.ofNanos(duration).toMillis());
+        } catch (Exception e) {
+            log.error("Error executing stale processing subscriptions cleanup job", e);
+            throw new JobExecutionException("Failed to execute stale processing subscriptions cleanup job", e);
+        }
+    }
 
-            if (!acquired) {
-                log.warn("Could not acquire lock for stale processing subscriptions job (possibly handled by another instance)");
-                return;
+    /**
+     * Streams the partition's stale ids from the index and cancels them a chunk at a time. Cancelled
+     * subscriptions leave the PROCESSING set, so a rerun simply picks up what is left and no checkpoint is
+     * kept; {@link WorkPartition#advance} is still called per chunk to renew the lease.
+     */
+    private long cancelStale(SubscriptionRepository subscriptionRepository, SubscriptionService subscriptionService,
+                             WorkPartition partition, LocalDate yesterday) {
+        long cancelledCount = 0;
+        try (Stream<UUID> staleIds = subscriptionRepository.streamStaleProcessingIds(
+                partition.index(), yesterday, BATCH_SIZE)) {
+            Iterator<UUID> iterator = staleIds.iterator();
+            List<UUID> chunk = new ArrayList<>(BATCH_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    cancelledCount += cancelChunk(subscriptionService, chunk, yesterday);
+                    partition.advance(chunk.get(chunk.size() - 1));
+                    chunk = new ArrayList<>(BATCH_SIZE);
+                }
             }
+        }
+        return cancelledCount;
+    }
 
-            try {
-                List<Subscription> processingSubscriptions = subscriptionRepository.findByStatus(Status.PROCESSING);
-                
-                log.info("Found {} subscriptions in PROCESSING status", processingSubscriptions.size());
-
-                LocalDate yesterday = LocalDate.now().minusDays(1);
-                int cancelledCount = 0;
-
-                for (Subscription subscription : processingSubscriptions) {
-                    if (subscription.getStartDate() == null || 
-                        subscription.getStartDate().isBefore(yesterday) ||
-                        subscription.getStartDate().isEqual(yesterday)) {
-                        
-                        try {
-                            log.info("Cancelling stale processing subscription: {} (startDate: {})", 
-                                    subscription.getId(), subscription.getStartDate());
-                            subscriptionService.cancelStaleProcessingSubscription(subscription.getId());
-                            cancelledCount++;
-                        } catch (Exception e) {
-                            log.error("Error cancelling stale processing subscription: {}", 
-                                    subscription.getId(), e);
-                        }
-                    }
-                }
+    private int cancelChunk(SubscriptionService subscriptionService, List<UUID> chunk, LocalDate yesterday) {
+        try {
+            return subscriptionService.cancelStaleProcessingSubscriptions(chunk, yesterday);
+        } catch (Exception e) {
+            // usually a write conflict with a payment result for one of the ids: retry the chunk one by one
+            log.warn("Bulk cancellation of {} stale processing subscriptions failed, cancelling individually",
+                    chunk.size(), e);
+        }
 
-                log.info("Stale processing subscriptions cleanup job completed. Cancelled {} subscriptions", cancelledCount);
-            } finally {
-                if (lock.isHeldByCurrentThread()) {
-                    lock.unlock();
-                    log.debug("Lock released for stale processing subscriptions job");
+        int cancelledCount = 0;
+        for (UUID id : chunk) {
+            try {
+                if (subscriptionService.cancelStaleProcessingSubscriptions(List.of(id), yesterday) > 0) {
+                    cancelledCount++;
                 }
+            } catch (Exception e) {
+                log.error("Error cancelling stale processing subscription: {}", id, e);
             }
-
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while trying to acquire lock for stale processing subscriptions job", e);
-        } catch (Exception e) {
-            log.error("Error executing stale processing subscriptions cleanup job", e);
-            throw new JobExecutionException("Failed to execute stale processing subscriptions cleanup job", e);
         }
+        return cancelledCount;
     }
 }
-
@@ -0,0 +1,43 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
+
+import br.com.paulocalderan.subscriptionservice.application.service.SubscriptionRenewalService;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class RenewalJob implements Job {
+
+    private final ApplicationContext applicationContext;
+
+    public RenewalJob(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        SubscriptionRenewalService renewalService = applicationContext.getBean(SubscriptionRenewalService.class);
+
+        log.info("Starting subscription renewal job");
+
+        try {
+            LocalDateTime slotStart = LocalDateTime.ofInstant(
+                    context.getScheduledFireTime().toInstant(), ZoneId.systemDefault());
+            renewalService.requestDueRenewals(
+                    slotStart.toLocalDate(), Subscription.billingSlotAt(slotStart.toLocalTime()));
+        } catch (Exception e) {
+            log.error("Error executing subscription renewal job", e);
+            throw new JobExecutionException("Failed to execute subscription renewal job", e);
+        }
+    }
+}
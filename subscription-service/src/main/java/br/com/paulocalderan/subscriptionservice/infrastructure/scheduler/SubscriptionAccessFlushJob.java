@@ -0,0 +1,34 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.scheduler;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.cache.SubscriptionAccessTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class SubscriptionAccessFlushJob implements Job {
+
+    private final ApplicationContext applicationContext;
+
+    public SubscriptionAccessFlushJob(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        SubscriptionAccessTracker accessTracker = applicationContext.getBean(SubscriptionAccessTracker.class);
+
+        try {
+            accessTracker.flush();
+        } catch (Exception e) {
+            log.error("Error flushing subscription access tracker", e);
+            throw new JobExecutionException("Failed to flush subscription access tracker", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.timeout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel of keyed deadlines with millisecond input and {@code tickMillis} resolution.
+ * Level {@code L} has {@code wheelSize} buckets of {@code wheelSize^L} ticks each; a timeout sits in the
+ * lowest level whose span covers its remaining delay and is moved down a level when the lower wheel reaches
+ * its bucket. Buckets are intrusive doubly linked lists, so {@link #schedule} and {@link #cancel} are O(1),
+ * and {@link #advanceTo} touches each timeout at most once per level. Deadlines beyond the top level's span
+ * are parked in it and re-placed on every rotation. Not thread-safe.
+ */
+final class HierarchicalTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelSpans;
+    private final Bucket<K>[][] levels;
+    private final Map<K, Timeout<K>> timeouts = new HashMap<>();
+
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelSpans = new long[levelCount];
+        this.levels = new Bucket[levelCount][wheelSize];
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            levelSpans[level] = span;
+            for (int bucket = 0; bucket < wheelSize; bucket++) {
+                levels[level][bucket] = new Bucket<>();
+            }
+            span = Math.multiplyExact(span, wheelSize);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules {@code key} to expire at {@code deadlineMillis}, replacing any timeout it already had. A
+     * deadline already past expires on the next tick.
+     */
+    void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        Timeout<K> timeout = new Timeout<>(key, Math.max(currentTick + 1, ceilDiv(deadlineMillis, tickMillis)));
+        timeouts.put(key, timeout);
+        place(timeout);
+    }
+
+    boolean cancel(K key) {
+        Timeout<K> timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis} and returns the keys whose deadline passed, in deadline order
+     * at tick resolution.
+     */
+    List<K> advanceTo(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = levels.length - 1; level > 0; level--) {
+                if (currentTick % levelSpans[level] == 0) {
+                    Bucket<K> bucket = levels[level][bucketIndex(currentTick, level)];
+                    for (Timeout<K> timeout = bucket.detachAll(); timeout != null; ) {
+                        Timeout<K> next = timeout.next;
+                        place(timeout);
+                        timeout = next;
+                    }
+                }
+            }
+            Bucket<K> due = levels[0][bucketIndex(currentTick, 0)];
+            for (Timeout<K> timeout = due.detachAll(); timeout != null; timeout = timeout.next) {
+                timeouts.remove(timeout.key);
+                expired.add(timeout.key);
+            }
+        }
+        return expired;
+    }
+
+    int size() {
+        return timeouts.size();
+    }
+
+    private void place(Timeout<K> timeout) {
+        long delay = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels.length - 1 && delay >= levelSpans[level + 1]) {
+            level++;
+        }
+        levels[level][bucketIndex(timeout.deadlineTick, level)].add(timeout);
+    }
+
+    private int bucketIndex(long tick, int level) {
+        return (int) ((tick / levelSpans[level]) % wheelSize);
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    private static final class Timeout<K> {
+
+        private final K key;
+        private final long deadlineTick;
+        private Bucket<K> bucket;
+        private Timeout<K> previous;
+        private Timeout<K> next;
+
+        private Timeout(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private static final class Bucket<K> {
+
+        private Timeout<K> head;
+
+        private void add(Timeout<K> timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        private void remove(Timeout<K> timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Empties the bucket and returns its former head; the timeouts stay linked through {@code next}.
+         */
+        private Timeout<K> detachAll() {
+            Timeout<K> detached = head;
+            head = null;
+            return detached;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.timeout;
+
+import br.com.paulocalderan.subscriptionservice.application.service.SubscriptionService;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Cancels each PROCESSING subscription as soon as {@code subscription.processing-timeout} has passed since
+ * it was created, instead of waiting for the periodic stale scan. Timeouts live in a
+ * {@link HierarchicalTimingWheel} with one-second ticks. {@link #register} is called on creation and
+ * {@link #cancel} on activation or failure, both once the transaction commits. Every tick, the expired ids
+ * are cancelled in one batch through the same guarded bulk cancellation as the stale scan, so a timeout for a
+ * subscription that left PROCESSING meanwhile is a no-op.
+ * <p>
+ * Only the instance holding the timeout lock keeps a wheel, so each timeout fires once rather than on
+ * every instance. It loads the wheel from the PROCESSING subscriptions when it takes the lock and every
+ * {@link #RESYNC_INTERVAL}, which picks up the subscriptions created on the other instances; the others
+ * keep no timeouts and wait to take over. {@code ProcessStaleProcessingSubscriptionsJob} remains as the
+ * safety net.
+ */
+@Slf4j
+@Component
+public class ProcessingTimeoutScheduler implements SmartLifecycle {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int LEVELS = 4;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int CANCEL_BATCH_SIZE = 1000;
+    private static final String LOCK_KEY = "subscription:processing-timeouts:lock";
+    private static final Duration RESYNC_INTERVAL = Duration.ofMinutes(1);
+
+    private final ApplicationContext applicationContext;
+    private final SubscriptionRepository subscriptionRepository;
+    private final RedissonClient redissonClient;
+    private final Duration processingTimeout;
+
+    /** Guards {@link #wheel}, which is replaced when leadership is lost. */
+    private final Object wheelLock = new Object();
+    private HierarchicalTimingWheel<UUID> wheel = newWheel();
+
+    private volatile boolean running;
+    private volatile boolean leader;
+    private Thread tickerThread;
+
+    public ProcessingTimeoutScheduler(ApplicationContext applicationContext,
+                                      SubscriptionRepository subscriptionRepository,
+                                      RedissonClient redissonClient,
+                                      SubscriptionMetrics metrics,
+                                      @Value("${subscription.processing-timeout:24h}") Duration processingTimeout) {
+        this.applicationContext = applicationContext;
+        this.subscriptionRepository = subscriptionRepository;
+        this.redissonClient = redissonClient;
+        this.processingTimeout = processingTimeout;
+
+        metrics.registerGauge("subscription_processing_timeouts_pending",
+                "PROCESSING subscription timeouts scheduled on this instance", this::pending);
+    }
+
+    public void register(UUID subscriptionId, Instant createdAt) {
+        afterCommit(() -> schedule(subscriptionId, createdAt));
+    }
+
+    public void cancel(UUID subscriptionId) {
+        cancelAll(List.of(subscriptionId));
+    }
+
+    public void cancelAll(Collection<UUID> subscriptionIds) {
+        if (subscriptionIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(subscriptionIds);
+        afterCommit(() -> {
+            synchronized (wheelLock) {
+                ids.forEach(wheel::cancel);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} once the surrounding transaction commits, or right away outside one, so a rolled
+     * back creation never schedules a timeout and a rolled back activation never drops one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void schedule(UUID subscriptionId, Instant createdAt) {
+        // a non-leader's creations reach the leader's wheel with its next resync
+        if (!leader) {
+            return;
+        }
+        long deadline = createdAt.plus(processingTimeout).toEpochMilli();
+        synchronized (wheelLock) {
+            wheel.schedule(subscriptionId, deadline);
+        }
+    }
+
+    private static HierarchicalTimingWheel<UUID> newWheel() {
+        return new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_SIZE, LEVELS, System.currentTimeMillis());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        tickerThread = Thread.ofPlatform()
+                .name("processing-timeouts")
+                .daemon()
+                .start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (tickerThread != null) {
+            tickerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private int pending() {
+        synchronized (wheelLock) {
+            return wheel.size();
+        }
+    }
+
+    private void run() {
+        // no explicit lease: the Redisson watchdog keeps the lock while this instance is alive
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        long nextResync = 0;
+        try {
+            while (running) {
+                try {
+                    Thread.sleep(TICK_MILLIS - System.currentTimeMillis() % TICK_MILLIS);
+                    if (!leader) {
+                        if (!lock.tryLock()) {
+                            continue;
+                        }
+                        log.info("Acquired processing timeout lock, scheduling processing timeouts");
+                        leader = true;
+                        nextResync = 0;
+                    }
+                    if (System.currentTimeMillis() >= nextResync) {
+                        if (!lock.isHeldByCurrentThread()) {
+                            stepDown();
+                            continue;
+                        }
+                        resync();
+                        nextResync = System.currentTimeMillis() + RESYNC_INTERVAL.toMillis();
+                    }
+                    List<UUID> expired;
+                    synchronized (wheelLock) {
+                        expired = wheel.advanceTo(System.currentTimeMillis());
+                    }
+                    if (!expired.isEmpty()) {
+                        expire(expired);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("Error processing expired processing timeouts", e);
+                }
+            }
+        } finally {
+            leader = false;
+            try {
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
+            } catch (Exception e) {
+                log.warn("Error releasing processing timeout lock, it expires with the watchdog", e);
+            }
+        }
+    }
+
+    private void stepDown() {
+        log.warn("Lost processing timeout lock, dropping this instance's processing timeouts");
+        leader = false;
+        synchronized (wheelLock) {
+            wheel = newWheel();
+        }
+    }
+
+    /**
+     * Schedules every PROCESSING subscription, replacing the deadline of those already scheduled. Timeouts of
+     * subscriptions that left PROCESSING on another instance stay until they fire as no-ops.
+     */
+    private void resync() {
+        long count = 0;
+        try (Stream<Subscription> processing = subscriptionRepository.streamProcessingSince(REBUILD_BATCH_SIZE)) {
+            for (Iterator<Subscription> iterator = processing.iterator(); iterator.hasNext(); ) {
+                Subscription subscription = iterator.next();
+                schedule(subscription.getId(), processingSince(subscription));
+                count++;
+            }
+        }
+        log.debug("Scheduled {} processing timeouts from the PROCESSING subscriptions", count);
+    }
+
+    /**
+     * Subscriptions stored before {@code createdAt} existed fall back to the start of their start date.
+     */
+    private static Instant processingSince(Subscription subscription) {
+        if (subscription.getCreatedAt() != null) {
+            return subscription.getCreatedAt();
+        }
+        LocalDate startDate = subscription.getStartDate() != null ? subscription.getStartDate() : LocalDate.now();
+        return startDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    private void expire(List<UUID> expired) {
+        // looked up lazily: SubscriptionService depends on this scheduler
+        SubscriptionService subscriptionService = applicationContext.getBean(SubscriptionService.class);
+        LocalDate today = LocalDate.now();
+        int cancelled = 0;
+        for (int from = 0; from < expired.size(); from += CANCEL_BATCH_SIZE) {
+            List<UUID> chunk = expired.subList(from, Math.min(expired.size(), from + CANCEL_BATCH_SIZE));
+            try {
+                cancelled += subscriptionService.cancelStaleProcessingSubscriptions(chunk, today);
+            } catch (Exception e) {
+                // usually a write conflict with a payment result for one of the ids: retry the chunk one by one
+                log.warn("Bulk cancellation of {} timed out subscriptions failed, cancelling individually", chunk.size(), e);
+                for (UUID id : chunk) {
+                    try {
+                        cancelled += subscriptionService.cancelStaleProcessingSubscriptions(List.of(id), today);
+                    } catch (Exception individual) {
+                        log.error("Error cancelling timed out processing subscription: {}", id, individual);
+                    }
+                }
+            }
+        }
+        log.info("Processing timeout expired for {} subscriptions, {} cancelled", expired.size(), cancelled);
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.paulocalderan.subscriptionservice.presentation.controller;
+
+import br.com.paulocalderan.subscriptionservice.application.dto.BulkActiveSubscriptionRequest;
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionPageResponse;
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionResponse;
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionSearchRequest;
+import br.com.paulocalderan.subscriptionservice.application.service.SubscriptionService;
+import br.com.paulocalderan.subscriptionservice.common.Response;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Slf4j
+@Validated
+@RestController
+@RequestMapping("/api/subscriptions")
+@RequiredArgsConstructor
+@Tag(name = "Subscriptions")
+public class SubscriptionQueryController {
+
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+
+    private final SubscriptionService subscriptionService;
+    private final ObjectMapper objectMapper;
+
+    @Operation(summary = "Export all subscriptions as NDJSON",
+            description = "Streams one subscription per line in id order. Pass the last exported id as 'after' to resume.")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void export(
+            @Parameter(description = "Resume the export right after this subscription id")
+            @RequestParam(required = false) UUID after,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ServletOutputStream outputStream = response.getOutputStream();
+        long written = 0;
+
+        try (Stream<SubscriptionResponse> subscriptions = subscriptionService.streamAll(after)) {
+            Iterator<SubscriptionResponse> iterator = subscriptions.iterator();
+            while (iterator.hasNext()) {
+                outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
+                if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                    outputStream.flush();
+                }
+            }
+            outputStream.flush();
+        }
+
+        log.info("Subscriptions export finished after id: {}, exported: {}", after, written);
+    }
+
+    @Operation(summary = "Search subscriptions",
+            description = "Filters by plan, status and expiration range using keyset pagination. "
+                    + "Pass the returned nextCursor to fetch the following page.")
+    @GetMapping("/search")
+    public ResponseEntity<Response<SubscriptionPageResponse>> search(
+            @RequestParam(required = false) String plan,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expirationFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expirationTo,
+            @Parameter(description = "EXPIRATION_DATE (default) or STATUS")
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int size) {
+
+        SubscriptionPageResponse page = subscriptionService.search(new SubscriptionSearchRequest(
+                plan, status, expirationFrom, expirationTo, sortBy, cursor, size));
+        return ResponseEntity.ok(Response.success(page));
+    }
+
+    @Operation(summary = "Find active subscriptions of many users",
+            description = "Returns the active subscriptions of up to 5000 users in request order. "
+                    + "Users without an active subscription are left out.")
+    @PostMapping("/active/bulk")
+    public ResponseEntity<Response<List<SubscriptionResponse>>> findActiveByUserIds(
+            @Valid @RequestBody BulkActiveSubscriptionRequest request) {
+
+        List<SubscriptionResponse> subscriptions = subscriptionService.findActiveByUserIds(request.userIds());
+        return ResponseEntity.ok(Response.success(subscriptions));
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.paulocalderan.subscriptionservice.application.query;
+
+import br.com.paulocalderan.subscriptionservice.application.dto.SubscriptionResponse;
+import br.com.paulocalderan.subscriptionservice.application.mapper.SubscriptionMapperImpl;
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import com.mongodb.MongoClientSettings;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionResponseCodecTest {
+
+    private final SubscriptionResponseCodec codec = new SubscriptionResponseCodec();
+    private MappingMongoConverter converter;
+    private Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        UUID id = UUID.randomUUID();
+        subscription = Subscription.builder()
+                .id(id)
+                .userId(UUID.randomUUID())
+                .plan(Plan.FAMILY)
+                .startDate(LocalDate.of(2026, 1, 31))
+                .createdAt(Instant.parse("2026-01-31T10:15:30Z"))
+                .expirationDate(LocalDate.of(2026, 2, 28))
+                .status(Status.ACTIVE)
+                .renewalAttempts(2)
+                .renewalRequestedOn(LocalDate.of(2026, 2, 27))
+                .partitionKey(Subscription.partitionOf(id))
+                .billingSlot(Subscription.billingSlotOf(id))
+                .version(7L)
+                .build();
+    }
+
+    @Test
+    void shouldDecodeSameResponseAsMapperForStandardUuids() {
+        // When
+        SubscriptionResponse result = stored(UuidRepresentation.STANDARD).decode(codec);
+
+        // Then
+        assertThat(result).isEqualTo(new SubscriptionMapperImpl().toResponse(subscription));
+    }
+
+    @Test
+    void shouldDecodeSameResponseAsMapperForLegacyUuids() {
+        // When
+        SubscriptionResponse result = stored(UuidRepresentation.JAVA_LEGACY).decode(codec);
+
+        // Then
+        assertThat(result).isEqualTo(new SubscriptionMapperImpl().toResponse(subscription));
+    }
+
+    @Test
+    void shouldLeaveMissingAndNullFieldsNull() {
+        // Given
+        Document document = new Document("_id", subscription.getId())
+                .append("plan", "BASIC")
+                .append("expirationDate", null);
+        CodecRegistry registry = registry(UuidRepresentation.STANDARD);
+
+        // When
+        SubscriptionResponse result = new RawBsonDocument(document, registry.get(Document.class)).decode(codec);
+
+        // Then
+        assertThat(result).isEqualTo(new SubscriptionResponse(
+                subscription.getId(), null, "BASIC", null, null, null, null));
+    }
+
+    @Test
+    void shouldRoundTripEncodedResponse() {
+        // Given
+        SubscriptionResponse response = new SubscriptionMapperImpl().toResponse(subscription);
+
+        // When
+        SubscriptionResponse result = new RawBsonDocument(response, codec).decode(codec);
+
+        // Then
+        assertThat(result).isEqualTo(response);
+    }
+
+    @Test
+    void shouldEncodeSameFieldsAsStoredDocument() {
+        // Given
+        SubscriptionResponse response = new SubscriptionMapperImpl().toResponse(subscription);
+        RawBsonDocument stored = stored(UuidRepresentation.STANDARD);
+
+        // When
+        RawBsonDocument encoded = new RawBsonDocument(response, codec);
+
+        // Then
+        for (String field : new String[] {"_id", "userId", "plan", "startDate", "expirationDate", "status", "renewalAttempts"}) {
+            assertThat(encoded.get(field)).as(field).isEqualTo(stored.get(field));
+        }
+    }
+
+    private RawBsonDocument stored(UuidRepresentation uuidRepresentation) {
+        Document document = new Document();
+        converter.write(subscription, document);
+        return new RawBsonDocument(document, registry(uuidRepresentation).get(Document.class));
+    }
+
+    private static CodecRegistry registry(UuidRepresentation uuidRepresentation) {
+        return CodecRegistries.withUuidRepresentation(MongoClientSettings.getDefaultCodecRegistry(), uuidRepresentation);
+    }
+}
@@ -0,0 +1,348 @@
+package br.com.paulocalderan.subscriptionservice.domain.repository;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.model.SubscriptionTransition;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every {@link SubscriptionRepository} method against a MongoDB container loaded with
+ * {@code query-plan.documents} synthetic subscriptions (two million by default), captures the commands it
+ * sends and explains each one. Fails when a plan scans the collection or examines far more documents than
+ * it returns, or when a declared index is never chosen by any method. Tagged {@code query-plan} and run with {@code ./gradlew queryPlanTest}.
+ */
+@Tag("query-plan")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SubscriptionRepositoryQueryPlanTest {
+
+    private static final int DOCUMENTS = Integer.getInteger("query-plan.documents", 2_000_000);
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int MAX_EXAMINED_PER_RETURNED = 5;
+    private static final int EXAMINED_SLACK = 1_000;
+    /** Methods whose sort must come from the index rather than an in-memory SORT stage. */
+    private static final Set<String> SORTED_BY_INDEX = Set.of("streamDueForRenewal");
+    private static final Set<String> EXPLAINED_COMMANDS = Set.of("find", "aggregate", "count", "update", "findAndModify");
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private final List<BsonDocument> captured = new CopyOnWriteArrayList<>();
+    private final List<UUID> sampleIds = new ArrayList<>();
+    private final List<UUID> sampleUserIds = new ArrayList<>();
+
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private SubscriptionRepository repository;
+
+    @BeforeAll
+    void loadSubscriptions() {
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if (EXPLAINED_COMMANDS.contains(event.getCommandName())) {
+                    captured.add(event.getCommand().clone());
+                }
+            }
+        };
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(MONGO.getReplicaSetUrl("subscriptions")))
+                .uuidRepresentation(UuidRepresentation.STANDARD)
+                .addCommandListener(listener)
+                .build());
+        mongoTemplate = new MongoTemplate(client, "subscriptions");
+        repository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(SubscriptionRepository.class, new SubscriptionRepositoryImpl(mongoTemplate));
+
+        IndexOperations indexOps = mongoTemplate.indexOps(Subscription.class);
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        resolver.resolveIndexFor(Subscription.class).forEach(indexOps::ensureIndex);
+
+        Random random = new Random(42);
+        List<Subscription> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            batch.add(syntheticSubscription(random));
+            if (batch.size() == INSERT_BATCH_SIZE || i == DOCUMENTS - 1) {
+                mongoTemplate.insert(batch, Subscription.class);
+                batch.clear();
+            }
+        }
+        captured.clear();
+    }
+
+    @AfterAll
+    void close() {
+        client.close();
+    }
+
+    Stream<Arguments> repositoryMethods() {
+        return Stream.of(
+                method("findByUserIdAndStatus", r -> r.findByUserIdAndStatus(sampleUserIds.get(0), Status.ACTIVE)),
+                method("findByUserIdAndStatus(PROCESSING)", r -> r.findByUserIdAndStatus(sampleUserIds.get(1), Status.PROCESSING)),
+                method("findByUserIdInAndStatus", r -> r.findByUserIdInAndStatus(sampleUserIds, Status.ACTIVE)),
+                method("findByStatus", r -> r.findByStatus(Status.PROCESSING)),
+                method("findExpiringOnDate", r -> r.findExpiringOnDate(TODAY)),
+                method("findExpiredOrExpiringOnDate", r -> r.findExpiredOrExpiringOnDate(TODAY.minusDays(30))),
+                method("existsByUserIdAndStatus", r -> r.existsByUserIdAndStatus(sampleUserIds.get(2), Status.PROCESSING)),
+                method("findById", r -> r.findById(sampleIds.get(0))),
+                method("findAllById", r -> r.findAllById(sampleIds)),
+                method("streamAllOrderedById", r -> drain(r.streamAllOrderedById(sampleIds.get(3), 1000), 5_000)),
+                method("streamActiveUserIds", r -> drain(r.streamActiveUserIds(5000), 5_000)),
+                method("streamActiveExpiringBetween", r -> drain(r.streamActiveExpiringBetween(TODAY, TODAY.plusDays(1), 1000), 5_000)),
+                method("streamDueForRenewal", r -> drain(r.streamDueForRenewal(TODAY, 40, 7, 1000), 5_000)),
+                method("countDueForRenewal", r -> r.countDueForRenewal(TODAY, 40)),
+                method("streamByStatusAndPartition", r -> drain(r.streamByStatusAndPartition(Status.ACTIVE, 7, null, 1000), 5_000)),
+                method("streamStaleProcessingIds", r -> drain(r.streamStaleProcessingIds(7, TODAY.minusDays(1), 1000), 5_000)),
+                method("streamProcessingSince", r -> drain(r.streamProcessingSince(1000), 5_000)),
+                method("search(expirationDate)", r -> r.search(SubscriptionSearchCriteria.builder()
+                        .expirationFrom(TODAY).expirationTo(TODAY.plusDays(7))
+                        .sortKey(SubscriptionSortKey.EXPIRATION_DATE).limit(50).build())),
+                method("search(plan, expirationDate)", r -> r.search(SubscriptionSearchCriteria.builder()
+                        .plan(Plan.PREMIUM).sortKey(SubscriptionSortKey.EXPIRATION_DATE)
+                        .afterSortValue(TODAY).afterId(sampleIds.get(4)).limit(50).build())),
+                method("search(status)", r -> r.search(SubscriptionSearchCriteria.builder()
+                        .status(Status.SUSPENDED).sortKey(SubscriptionSortKey.STATUS).limit(50).build())),
+                method("search(plan, status)", r -> r.search(SubscriptionSearchCriteria.builder()
+                        .plan(Plan.FAMILY).status(Status.CANCELLED).sortKey(SubscriptionSortKey.STATUS).limit(50).build())),
+                method("markRenewalRequested", r -> r.markRenewalRequested(sampleIds, TODAY)),
+                method("applyTransition", r -> r.applyTransition(sampleIds.get(5), SubscriptionTransition.CANCEL, TODAY)),
+                method("bulkUpdateState", r -> r.bulkUpdateState(r.findAllById(sampleIds.subList(6, 16)))),
+                method("cancelStaleProcessing", r -> r.cancelStaleProcessing(sampleIds, TODAY.minusDays(1), TODAY)),
+                method("assignMissingHashKeys", r -> r.assignMissingHashKeys(1000)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryMethods")
+    void shouldUseIndexedPlans(String name, Consumer<SubscriptionRepository> invocation) {
+        // Given
+        captured.clear();
+
+        // When
+        invocation.accept(repository);
+
+        // Then
+        assertThat(captured).as("commands sent by %s", name).isNotEmpty();
+        for (BsonDocument command : captured) {
+            for (BsonDocument filter : filtersOf(command)) {
+                Document explain = explain(command, filter);
+                Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                Document stats = explain.get("executionStats", Document.class);
+                long returned = ((Number) stats.get("nReturned")).longValue();
+                long examined = ((Number) stats.get("totalDocsExamined")).longValue();
+
+                assertThat(stages(winningPlan)).as("%s plan for %s", name, filter.toJson()).doesNotContain("COLLSCAN");
+                if (SORTED_BY_INDEX.contains(name)) {
+                    assertThat(stages(winningPlan)).as("%s plan for %s", name, filter.toJson()).doesNotContain("SORT");
+                }
+                assertThat(examined).as("%s documents examined for %d returned", name, returned)
+                        .isLessThanOrEqualTo(returned * MAX_EXAMINED_PER_RETURNED + EXAMINED_SLACK);
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldChooseEveryDeclaredIndex() {
+        // Given
+        Set<String> declared = new HashSet<>();
+        mongoTemplate.indexOps(Subscription.class).getIndexInfo().forEach(index -> declared.add(index.getName()));
+        declared.remove("_id_");
+        Set<String> chosen = new HashSet<>();
+
+        // When
+        repositoryMethods().forEach(arguments -> {
+            captured.clear();
+            ((Consumer<SubscriptionRepository>) arguments.get()[1]).accept(repository);
+            for (BsonDocument command : captured) {
+                for (BsonDocument filter : filtersOf(command)) {
+                    Document winningPlan = explain(command, filter)
+                            .get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                    planStages(winningPlan).stream()
+                            .filter(stage -> stage.containsKey("indexName"))
+                            .forEach(stage -> chosen.add(stage.getString("indexName")));
+                }
+            }
+        });
+
+        // Then
+        assertThat(chosen).as("indexes chosen by the repository methods").containsAll(declared);
+    }
+
+    @Test
+    void shouldAssignHashKeysToSubscriptionsWithoutStatus() {
+        // Given
+        List<UUID> legacyIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        mongoTemplate.insert(legacyIds.stream()
+                .map(id -> new Document("_id", id).append("userId", UUID.randomUUID()))
+                .toList(), "subscriptions");
+
+        // When
+        long updated = repository.assignMissingHashKeys(1000);
+
+        // Then
+        assertThat(updated).isGreaterThanOrEqualTo(legacyIds.size());
+        assertThat(repository.findAllById(legacyIds)).allSatisfy(subscription -> {
+            assertThat(subscription.getPartitionKey()).isEqualTo(Subscription.partitionOf(subscription.getId()));
+            assertThat(subscription.getBillingSlot()).isEqualTo(Subscription.billingSlotOf(subscription.getId()));
+        });
+    }
+
+    /**
+     * Re-runs {@code filter} with the sort and projection of a captured command as an explained find, so
+     * reads, counts and the query part of writes are all checked the same way.
+     */
+    private Document explain(BsonDocument command, BsonDocument filter) {
+        String commandName = command.getFirstKey();
+        BsonDocument find = new BsonDocument("find", command.getString(commandName))
+                .append("filter", filter);
+        if (command.containsKey("sort")) {
+            find.append("sort", command.get("sort"));
+        }
+        if (command.containsKey("projection")) {
+            find.append("projection", command.get("projection"));
+        }
+        if (command.containsKey("limit")) {
+            find.append("limit", command.get("limit"));
+        }
+        Document explain = new Document("explain", find).append("verbosity", "executionStats");
+        return client.getDatabase("subscriptions").runCommand(explain);
+    }
+
+    /**
+     * The filters a command runs: one per statement of an update, which may carry a whole bulk write.
+     */
+    private static List<BsonDocument> filtersOf(BsonDocument command) {
+        String commandName = command.getFirstKey();
+        return switch (commandName) {
+            case "find" -> List.of(command.getDocument("filter", new BsonDocument()));
+            case "count" -> List.of(command.getDocument("query", new BsonDocument()));
+            case "findAndModify" -> List.of(command.getDocument("query", new BsonDocument()));
+            case "update" -> command.getArray("updates").stream()
+                    .map(statement -> statement.asDocument().getDocument("q"))
+                    .toList();
+            case "aggregate" -> List.of(command.getArray("pipeline").stream()
+                    .map(BsonValue::asDocument)
+                    .filter(stage -> stage.containsKey("$match"))
+                    .map(stage -> stage.getDocument("$match"))
+                    .findFirst()
+                    .orElse(new BsonDocument()));
+            default -> throw new IllegalArgumentException("Unexpected command " + commandName);
+        };
+    }
+
+    private static List<String> stages(Document plan) {
+        return planStages(plan).stream().map(stage -> stage.getString("stage")).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> planStages(Document plan) {
+        List<Document> stages = new ArrayList<>();
+        stages.add(plan);
+        if (plan.get("inputStage") instanceof Document input) {
+            stages.addAll(planStages(input));
+        }
+        if (plan.get("inputStages") instanceof List<?> inputs) {
+            ((List<Document>) inputs).forEach(input -> stages.addAll(planStages(input)));
+        }
+        if (plan.get("queryPlan") instanceof Document queryPlan) {
+            stages.addAll(planStages(queryPlan));
+        }
+        return stages;
+    }
+
+    private Subscription syntheticSubscription(Random random) {
+        UUID id = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        Status status = randomStatus(random);
+        LocalDate expirationDate = TODAY.plusDays(random.nextInt(120) - 60);
+        LocalDate startDate = expirationDate.minusMonths(1);
+        if (sampleIds.size() < 100) {
+            sampleIds.add(id);
+            sampleUserIds.add(userId);
+        }
+        return Subscription.builder()
+                .id(id)
+                .userId(userId)
+                .plan(Plan.values()[random.nextInt(Plan.values().length)])
+                .status(status)
+                .startDate(startDate)
+                .createdAt(Instant.now())
+                .expirationDate(expirationDate)
+                .renewalAttempts(status == Status.SUSPENDED ? Subscription.MAX_RENEWAL_ATTEMPTS : 0)
+                .renewalRequestedOn(random.nextInt(10) == 0 ? TODAY : null)
+                .partitionKey(Subscription.partitionOf(id))
+                .billingSlot(Subscription.billingSlotOf(id))
+                .build();
+    }
+
+    /**
+     * Roughly the mix of a mature service: mostly ACTIVE, few pending.
+     */
+    private static Status randomStatus(Random random) {
+        int roll = random.nextInt(100);
+        if (roll < 70) {
+            return Status.ACTIVE;
+        }
+        if (roll < 85) {
+            return Status.CANCELLED;
+        }
+        if (roll < 92) {
+            return Status.SUSPENDED;
+        }
+        if (roll < 97) {
+            return Status.FAILED;
+        }
+        return Status.PROCESSING;
+    }
+
+    private static Arguments method(String name, Consumer<SubscriptionRepository> invocation) {
+        return Arguments.of(name, invocation);
+    }
+
+    private static void drain(Stream<?> stream, int max) {
+        try (stream) {
+            stream.limit(max).forEach(ignored -> { });
+        }
+    }
+}
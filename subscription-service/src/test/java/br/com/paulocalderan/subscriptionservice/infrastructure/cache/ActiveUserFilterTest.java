@@ -0,0 +1,132 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveUserFilterTest {
+
+    private static final byte[] CHANNEL = ActiveUserFilter.ACTIVATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private SubscriptionMetrics metrics;
+
+    private ActiveUserFilter filter;
+    private UUID activeUser;
+    private UUID missedUser;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ActiveUserFilter(subscriptionRepository, stringRedisTemplate, metrics, true, 1000, 0.01);
+        activeUser = UUID.randomUUID();
+        missedUser = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        filter.shutdownRebuilds();
+    }
+
+    @Test
+    void shouldFilterUnknownUsersOnceBuiltWhileSubscribed() {
+        // Given
+        when(subscriptionRepository.streamActiveUserIds(anyInt())).thenReturn(Stream.of(activeUser));
+        filter.onChannelSubscribed(CHANNEL, 1);
+
+        // When
+        filter.rebuild();
+
+        // Then
+        assertThat(filter.isReady()).isTrue();
+        assertThat(filter.mightBeActive(activeUser)).isTrue();
+        assertThat(filter.mightBeActive(missedUser)).isFalse();
+    }
+
+    @Test
+    void shouldBypassFilterAfterResubscribingUntilRebuilt() throws InterruptedException {
+        // Given
+        when(subscriptionRepository.streamActiveUserIds(anyInt()))
+                .thenReturn(Stream.of(activeUser))
+                .thenReturn(Stream.of(activeUser, missedUser));
+        filter.onChannelSubscribed(CHANNEL, 1);
+        filter.rebuild();
+
+        // When
+        filter.onChannelUnsubscribed(CHANNEL, 0);
+
+        // Then
+        assertThat(filter.mightBeActive(missedUser)).isTrue();
+
+        // When
+        filter.onChannelSubscribed(CHANNEL, 1);
+
+        // Then
+        awaitReady();
+        verify(subscriptionRepository, times(2)).streamActiveUserIds(anyInt());
+        assertThat(filter.mightBeActive(missedUser)).isTrue();
+    }
+
+    @Test
+    void shouldStayIncompleteWhenBuiltBeforeSubscribing() {
+        // Given
+        when(subscriptionRepository.streamActiveUserIds(anyInt())).thenReturn(Stream.of(activeUser));
+
+        // When
+        filter.rebuild();
+
+        // Then
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightBeActive(missedUser)).isTrue();
+        verify(subscriptionRepository, times(1)).streamActiveUserIds(anyInt());
+    }
+
+    @Test
+    void shouldAddActivationsLocallyWithoutBroadcasting() {
+        // Given
+        when(subscriptionRepository.streamActiveUserIds(anyInt())).thenReturn(Stream.empty());
+        filter.onChannelSubscribed(CHANNEL, 1);
+        filter.rebuild();
+
+        // When
+        filter.addLocally(List.of(missedUser));
+
+        // Then
+        assertThat(filter.mightBeActive(missedUser)).isTrue();
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!filter.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(filter.isReady()).isTrue();
+    }
+}
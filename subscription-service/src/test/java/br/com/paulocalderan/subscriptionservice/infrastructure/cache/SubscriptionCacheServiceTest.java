@@ -0,0 +1,313 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.Invocation;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionCacheServiceTest {
+
+    @Mock
+    private RedisTemplate<String, Subscription> redisTemplate;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionNearCache nearCache;
+
+    @Mock
+    private SubscriptionMetrics metrics;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ActiveUserFilter activeUserFilter;
+
+    @Mock
+    private SubscriptionAccessTracker accessTracker;
+
+    @Mock
+    private ValueOperations<String, Subscription> valueOperations;
+
+    @Mock
+    private ValueOperations<String, String> leaseOperations;
+
+    @InjectMocks
+    private SubscriptionCacheService cacheService;
+
+    private Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cacheService, "negativeCacheTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(cacheService, "minCacheTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cacheService, "maxCacheTtl", Duration.ofDays(7));
+        subscription = Subscription.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .plan(Plan.BASIC)
+                .startDate(LocalDate.now())
+                .expirationDate(LocalDate.now().plusMonths(1))
+                .status(Status.ACTIVE)
+                .renewalAttempts(0)
+                .version(2L)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldWriteThroughOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of("sha", 1L));
+
+        // When
+        cacheService.writeThrough(subscription);
+
+        // Then
+        verifyNoInteractions(redisTemplate, nearCache);
+        verify(activeUserFilter).addLocally(List.of(subscription.getUserId()));
+        verify(activeUserFilter, never()).add(anyList());
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Then
+        List<byte[][]> sets = pipelinedGuardedSets();
+        assertThat(sets).hasSize(1);
+        assertThat(new String(sets.get(0)[0])).isEqualTo("subscription:active:" + subscription.getUserId());
+        verify(nearCache).invalidate(List.of(subscription.getUserId()));
+        verify(activeUserFilter).add(List.of(subscription.getUserId()));
+    }
+
+    @Test
+    void shouldLeaveCacheUntouchedWhenTransactionRollsBack() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        cacheService.writeThrough(subscription);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        verifyNoInteractions(redisTemplate, nearCache);
+        verify(activeUserFilter, never()).add(anyList());
+    }
+
+    @Test
+    void shouldWriteThroughImmediatelyOutsideTransaction() {
+        // Given
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of("sha", 1L));
+
+        // When
+        cacheService.writeThrough(subscription);
+
+        // Then
+        verify(nearCache).invalidate(List.of(subscription.getUserId()));
+        verify(activeUserFilter).add(List.of(subscription.getUserId()));
+    }
+
+    @Test
+    void shouldWriteVersionedTombstoneInsteadOfDeletingWhenSubscriptionLeavesActive() {
+        // Given
+        subscription.cancel();
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of("sha", 1L));
+
+        // When
+        cacheService.writeThrough(subscription);
+
+        // Then
+        byte[][] set = pipelinedGuardedSets().get(0);
+        assertThat(new String(set[0])).isEqualTo("subscription:active:" + subscription.getUserId());
+        assertThat(new String(set[2])).isEqualTo("2");
+        verify(redisTemplate, never()).delete(anyList());
+        verify(activeUserFilter).add(List.of());
+    }
+
+    @Test
+    void shouldWriteBatchInOnePipelineAndInvalidateOnlyFailedUsers() {
+        // Given
+        Subscription other = Subscription.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .plan(Plan.BASIC)
+                .startDate(LocalDate.now())
+                .expirationDate(LocalDate.now().plusMonths(1))
+                .status(Status.ACTIVE)
+                .renewalAttempts(0)
+                .version(1L)
+                .build();
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenThrow(new RedisPipelineException(
+                new IllegalStateException("OOM"), List.of("sha", 1L, new IllegalStateException("OOM"))));
+
+        // When
+        cacheService.writeThroughAll(List.of(subscription, other));
+
+        // Then
+        assertThat(pipelinedGuardedSets()).hasSize(2);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), any(RedisSerializer.class),
+                any(RedisSerializer.class), anyList(), any(), any(), any());
+        verify(nearCache).invalidate(List.of(subscription.getUserId()));
+        verify(nearCache).invalidate(List.of(other.getUserId()));
+        verify(redisTemplate).delete(List.of("subscription:active:" + other.getUserId()));
+    }
+
+    @Test
+    void shouldServeTombstoneAsNoActiveSubscription() {
+        // Given
+        subscription.cancel();
+        UUID userId = subscription.getUserId();
+        when(activeUserFilter.mightBeActive(userId)).thenReturn(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("subscription:active:" + userId)).thenReturn(subscription);
+
+        // When
+        Optional<Subscription> result = cacheService.findActiveByUserId(userId);
+
+        // Then
+        assertThat(result).isEmpty();
+        verifyNoInteractions(subscriptionRepository);
+    }
+
+    @Test
+    void shouldLoadFromDatabaseOnceForConcurrentMisses() throws Exception {
+        // Given
+        int callers = 8;
+        UUID userId = subscription.getUserId();
+        CountDownLatch coalesced = new CountDownLatch(callers - 1);
+        when(activeUserFilter.mightBeActive(userId)).thenReturn(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        doAnswer(invocation -> {
+            coalesced.countDown();
+            return null;
+        }).when(metrics).incrementCacheLoadCoalesced("local");
+        when(subscriptionRepository.findByUserIdAndStatus(userId, Status.ACTIVE)).thenAnswer(invocation -> {
+            // hold the load until every other caller has joined it
+            coalesced.await(5, TimeUnit.SECONDS);
+            return Optional.of(subscription);
+        });
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Optional<Subscription>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cacheService.findActiveByUserId(userId)));
+            }
+            for (Future<Optional<Subscription>> result : results) {
+                // Then
+                assertThat(result.get(10, TimeUnit.SECONDS)).contains(subscription);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(coalesced.getCount()).isZero();
+        verify(subscriptionRepository, times(1)).findByUserIdAndStatus(userId, Status.ACTIVE);
+    }
+
+    @Test
+    void shouldReleaseLoadLeaseOnlyWithItsOwnToken() {
+        // Given
+        ReflectionTestUtils.setField(cacheService, "distributedSingleFlight", true);
+        ReflectionTestUtils.setField(cacheService, "loadLeaseTtl", Duration.ofMillis(500));
+        UUID userId = subscription.getUserId();
+        String leaseKey = "subscription:active:load-lease:" + userId;
+        when(activeUserFilter.mightBeActive(userId)).thenReturn(true);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(stringRedisTemplate.opsForValue()).thenReturn(leaseOperations);
+        List<String> tokens = new ArrayList<>();
+        when(leaseOperations.setIfAbsent(eq(leaseKey), anyString(), eq(Duration.ofMillis(500)))).thenAnswer(invocation -> {
+            tokens.add(invocation.getArgument(1));
+            return true;
+        });
+        when(subscriptionRepository.findByUserIdAndStatus(userId, Status.ACTIVE)).thenReturn(Optional.of(subscription));
+
+        // When
+        cacheService.findActiveByUserId(userId);
+
+        // Then
+        assertThat(tokens).hasSize(1);
+        assertThat(tokens.get(0)).isNotEqualTo("1");
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of(leaseKey)), eq(tokens.get(0)));
+        verify(stringRedisTemplate, never()).delete(anyString());
+    }
+
+    /**
+     * Replays the pipelined callback against a mock connection and returns the keys and arguments of each
+     * version-guarded EVALSHA it sends.
+     */
+    @SuppressWarnings("unchecked")
+    private List<byte[][]> pipelinedGuardedSets() {
+        ArgumentCaptor<RedisCallback<Object>> callback = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisScriptingCommands scripting = mock(RedisScriptingCommands.class);
+        when(connection.scriptingCommands()).thenReturn(scripting);
+        callback.getValue().doInRedis(connection);
+        return mockingDetails(scripting).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("evalSha"))
+                .map(Invocation::getRawArguments)
+                .map(arguments -> (byte[][]) arguments[3])
+                .toList();
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubscriptionRedisSerializerTest {
+
+    private SubscriptionRedisSerializer serializer;
+    private Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        serializer = new SubscriptionRedisSerializer();
+        subscription = Subscription.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .plan(Plan.FAMILY)
+                .startDate(LocalDate.of(2026, 1, 31))
+                .expirationDate(LocalDate.of(2026, 2, 28))
+                .status(Status.ACTIVE)
+                .renewalAttempts(2)
+                .version(7L)
+                .build();
+    }
+
+    @Test
+    void shouldRoundTripSubscription() {
+        // When
+        byte[] bytes = serializer.serialize(subscription);
+        Subscription result = serializer.deserialize(bytes);
+
+        // Then
+        assertThat(bytes).hasSizeLessThanOrEqualTo(56);
+        assertThat(result).usingRecursiveComparison().isEqualTo(subscription);
+    }
+
+    @Test
+    void shouldEncodeEntryInAQuarterOfTheJsonSize() {
+        // When
+        byte[] binary = serializer.serialize(subscription);
+        byte[] json = new GenericJackson2JsonRedisSerializer().serialize(subscription);
+
+        // Then
+        assertThat(binary).hasSizeLessThan(json.length / 4);
+    }
+
+    @Test
+    void shouldEncodeEmptySubscriptionInTwoBytes() {
+        // Given
+        Subscription empty = Subscription.builder().renewalAttempts(null).build();
+
+        // When
+        byte[] bytes = serializer.serialize(empty);
+        Subscription result = serializer.deserialize(bytes);
+
+        // Then
+        assertThat(bytes).hasSize(2);
+        assertThat(result.getId()).isNull();
+        assertThat(result.getRenewalAttempts()).isNull();
+    }
+
+    @Test
+    void shouldReadEntriesWrittenAsJson() {
+        // Given
+        byte[] json = new GenericJackson2JsonRedisSerializer().serialize(subscription);
+
+        // When
+        Subscription result = serializer.deserialize(json);
+
+        // Then
+        assertThat(result).usingRecursiveComparison().isEqualTo(subscription);
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        assertThatThrownBy(() -> serializer.deserialize(new byte[]{42, 0}))
+                .isInstanceOf(SerializationException.class);
+    }
+}
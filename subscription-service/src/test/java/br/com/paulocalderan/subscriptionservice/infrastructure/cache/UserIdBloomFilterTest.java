@@ -0,0 +1,60 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserIdBloomFilterTest {
+
+    private static final int INSERTIONS = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void shouldContainEveryInsertedUser() {
+        // Given
+        UserIdBloomFilter filter = new UserIdBloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        List<UUID> userIds = new ArrayList<>();
+        for (int i = 0; i < INSERTIONS; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+
+        // When
+        userIds.forEach(filter::put);
+
+        // Then
+        assertThat(userIds).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void shouldKeepFalsePositiveRateNearConfiguredRate() {
+        // Given
+        UserIdBloomFilter filter = new UserIdBloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.put(UUID.randomUUID());
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertThat((double) falsePositives / INSERTIONS).isLessThan(FALSE_POSITIVE_RATE * 1.5);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(FALSE_POSITIVE_RATE * 1.5);
+    }
+
+    @Test
+    void shouldRejectUsersOfEmptyFilter() {
+        UserIdBloomFilter filter = new UserIdBloomFilter(INSERTIONS, FALSE_POSITIVE_RATE);
+
+        assertThat(filter.mightContain(UUID.randomUUID())).isFalse();
+        assertThat(filter.expectedFalsePositiveRate()).isZero();
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.expiry;
+
+import br.com.paulocalderan.subscriptionservice.domain.model.Plan;
+import br.com.paulocalderan.subscriptionservice.domain.model.Status;
+import br.com.paulocalderan.subscriptionservice.domain.model.Subscription;
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionExpiryIndexTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private SubscriptionMetrics metrics;
+
+    private Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        subscription = Subscription.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .plan(Plan.BASIC)
+                .startDate(LocalDate.now())
+                .expirationDate(LocalDate.now().plusMonths(1))
+                .status(Status.ACTIVE)
+                .renewalAttempts(0)
+                .build();
+    }
+
+    @Test
+    void shouldMaintainIndexWhenDiscoveryIsDisabled() {
+        // Given
+        SubscriptionExpiryIndex expiryIndex = expiryIndex(false);
+
+        // When
+        expiryIndex.updateAfterCommit(List.of(subscription));
+
+        // Then
+        verify(stringRedisTemplate).executePipelined(any(RedisCallback.class));
+        assertThat(expiryIndex.isReady()).isFalse();
+    }
+
+    @Test
+    void shouldMarkIndexAsNotBuiltWhenUpdateFails() {
+        // Given
+        SubscriptionExpiryIndex expiryIndex = expiryIndex(true);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("connection reset"));
+
+        // When
+        expiryIndex.apply(List.of(subscription));
+
+        // Then
+        verify(stringRedisTemplate).delete(List.of("subscription:expiry:built", "subscription:expiry:rebuilding"));
+    }
+
+    @Test
+    void shouldNotTouchBuiltMarkerWhenUpdateSucceeds() {
+        // Given
+        SubscriptionExpiryIndex expiryIndex = expiryIndex(true);
+
+        // When
+        expiryIndex.apply(List.of(subscription));
+
+        // Then
+        verify(stringRedisTemplate, never()).delete(any(List.class));
+    }
+
+    @Test
+    void shouldBeReadyOnlyWhenEnabledAndBuilt() {
+        // Given
+        SubscriptionExpiryIndex expiryIndex = expiryIndex(true);
+        when(stringRedisTemplate.hasKey("subscription:expiry:built")).thenReturn(true, false);
+
+        // When / Then
+        assertThat(expiryIndex.isReady()).isTrue();
+        assertThat(expiryIndex.isReady()).isFalse();
+    }
+
+    private SubscriptionExpiryIndex expiryIndex(boolean enabled) {
+        return new SubscriptionExpiryIndex(stringRedisTemplate, subscriptionRepository, redissonClient, metrics, enabled);
+    }
+}
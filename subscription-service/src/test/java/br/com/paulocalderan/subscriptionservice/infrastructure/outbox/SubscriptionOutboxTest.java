@@ -0,0 +1,70 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.outbox;
+
+import br.com.paulocalderan.subscriptionservice.infrastructure.messaging.event.SubscriptionRenewedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionOutboxTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SubscriptionOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new SubscriptionOutbox(outboxEventRepository, mongoTemplate, new ObjectMapper().findAndRegisterModules(), 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReserveOneBlockOfSequencesPerPartitionInAppendOrder() {
+        // Given
+        OutboxSequence sequence = mock(OutboxSequence.class);
+        when(sequence.getValue()).thenReturn(12L);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(OutboxSequence.class))).thenReturn(sequence);
+        List<SubscriptionRenewedEvent> events = List.of(
+                new SubscriptionRenewedEvent(UUID.randomUUID(), UUID.randomUUID()),
+                new SubscriptionRenewedEvent(UUID.randomUUID(), UUID.randomUUID()),
+                new SubscriptionRenewedEvent(UUID.randomUUID(), UUID.randomUUID()));
+
+        // When
+        outbox.appendAll(events);
+
+        // Then
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(OutboxSequence.class));
+        assertThat(update.getValue().getUpdateObject().toJson()).contains("\"value\": 3");
+
+        ArgumentCaptor<List<OutboxEvent>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(outboxEventRepository).insert(inserted.capture());
+        assertThat(inserted.getValue()).extracting(OutboxEvent::getSequence).containsExactly(10L, 11L, 12L);
+        assertThat(inserted.getValue()).extracting(OutboxEvent::getSubscriptionId)
+                .containsExactlyElementsOf(events.stream().map(SubscriptionRenewedEvent::subscriptionId).toList());
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.timeout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void shouldExpireEachTimeoutAtItsDeadlineAcrossLevels() {
+        // Given
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 8, 3, START);
+        Random random = new Random(42);
+        List<Long> delays = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long delay = (1 + random.nextInt(2_000)) * TICK_MILLIS;
+            delays.add(delay);
+            wheel.schedule(delay, START + delay);
+        }
+
+        // When / Then
+        for (long now = START + TICK_MILLIS; now <= START + 2_000 * TICK_MILLIS; now += TICK_MILLIS) {
+            long elapsed = now - START;
+            assertThat(wheel.advanceTo(now)).allMatch(delay -> delay == elapsed);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldNotExpireCancelledTimeout() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 64, 4, START);
+        wheel.schedule("kept", START + 90_000);
+        wheel.schedule("cancelled", START + 90_000);
+
+        // When
+        boolean cancelled = wheel.cancel("cancelled");
+        List<String> expired = wheel.advanceTo(START + 90_000);
+
+        // Then
+        assertThat(cancelled).isTrue();
+        assertThat(expired).containsExactly("kept");
+        assertThat(wheel.cancel("kept")).isFalse();
+    }
+
+    @Test
+    void shouldExpirePastDeadlineOnNextTick() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 64, 4, START);
+
+        // When
+        wheel.schedule("overdue", START - 60_000);
+
+        // Then
+        assertThat(wheel.advanceTo(START + TICK_MILLIS)).containsExactly("overdue");
+    }
+
+    @Test
+    void shouldExpireDeadlineBeyondTopLevelSpan() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 4, 2, START);
+        long deadline = START + 100 * TICK_MILLIS;
+        wheel.schedule("far", deadline);
+
+        // When
+        List<String> early = wheel.advanceTo(deadline - TICK_MILLIS);
+        List<String> onTime = wheel.advanceTo(deadline);
+
+        // Then
+        assertThat(early).isEmpty();
+        assertThat(onTime).containsExactly("far");
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.paulocalderan.subscriptionservice.infrastructure.timeout;
+
+import br.com.paulocalderan.subscriptionservice.domain.repository.SubscriptionRepository;
+import br.com.paulocalderan.subscriptionservice.infrastructure.metrics.SubscriptionMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class ProcessingTimeoutSchedulerTest {
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private SubscriptionMetrics metrics;
+
+    private ProcessingTimeoutScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ProcessingTimeoutScheduler(applicationContext, subscriptionRepository, redissonClient,
+                metrics, Duration.ofHours(24));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldRegisterTimeoutOnlyAfterCommit() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "leader", true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        scheduler.register(UUID.randomUUID(), Instant.now());
+
+        // Then
+        assertThat(pending()).isZero();
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Then
+        assertThat(pending()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepTimeoutWhenCancellingTransactionRollsBack() {
+        // Given
+        ReflectionTestUtils.setField(scheduler, "leader", true);
+        UUID subscriptionId = UUID.randomUUID();
+        scheduler.register(subscriptionId, Instant.now());
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        scheduler.cancel(subscriptionId);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Then
+        assertThat(pending()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotScheduleTimeoutsWithoutTheLock() {
+        // When
+        scheduler.register(UUID.randomUUID(), Instant.now());
+
+        // Then
+        assertThat(pending()).isZero();
+    }
+
+    private int pending() {
+        Integer pending = ReflectionTestUtils.invokeMethod(scheduler, "pending");
+        return pending;
+    }
+}